@@ -1,6 +1,10 @@
 package com.moneytrackultra.cashbook;
 
 import android.app.Application;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
 
 public class App extends Application {
 
@@ -8,6 +12,7 @@ public class App extends Application {
     public void onCreate() {
         super.onCreate();
         PrefsManager.init(this);
+        OfflineRepository.get(); // opens the transaction store on its worker thread
 
         // Do NOT call any seeder here.
         // Optional: restore saved currency into runtime formatter if you use one.
@@ -15,5 +20,22 @@ public class App extends Application {
         if (c != null) {
             CurrencyUtil.setCode(c);
         }
+
+        // PBKDF2 cost is measured once per install, on the hash worker.
+        PrefsManager prefs = PrefsManager.get();
+        PasswordHashUtil.setCalibratedIterations(prefs.getCalibratedHashIterations());
+        if (prefs.getCalibratedHashIterations() <= 0) {
+            PasswordHashUtil.calibrateAsync(prefs::saveCalibratedHashIterations);
+        }
+
+        // Cached period windows and date labels depend on the zone / locale.
+        IntentFilter tz = new IntentFilter(Intent.ACTION_TIMEZONE_CHANGED);
+        tz.addAction(Intent.ACTION_LOCALE_CHANGED);
+        registerReceiver(new BroadcastReceiver() {
+            @Override public void onReceive(Context ctx, Intent i) {
+                PeriodBoundaries.get().reset();
+                DateLabels.get().reset();
+            }
+        }, tz);
     }
 }
\ No newline at end of file
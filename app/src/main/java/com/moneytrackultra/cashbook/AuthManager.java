@@ -51,7 +51,7 @@ public class AuthManager {
                     PrefsManager.get().saveUser(u);
                     PrefsManager.get().saveProvider(AuthProvider.EMAIL.name());
                     PrefsManager.get().setSoftLoggedOut(false);
-                    // Store offline password hash (optional)
+                    // Store offline password hash (optional; hashed in the background)
                     PrefsManager.get().saveLocalPassword(password.toCharArray());
                     cb.onSuccess(u);
                 });
@@ -80,7 +80,7 @@ public class AuthManager {
                     }
                     PrefsManager.get().saveProvider(AuthProvider.EMAIL.name());
                     PrefsManager.get().setSoftLoggedOut(false);
-                    PrefsManager.get().saveLocalPassword(password.toCharArray()); // refresh local hash
+                    PrefsManager.get().saveLocalPassword(password.toCharArray()); // refresh local hash (background)
                     cb.onSuccess(PrefsManager.get().getUser());
                 });
     }
@@ -106,13 +106,20 @@ public class AuthManager {
             cb.onError("No offline password stored");
             return;
         }
-        boolean ok = PasswordHashUtil.verify(plainPassword.toCharArray(), salt, hash);
-        if(ok){
-            PrefsManager.get().setSoftLoggedOut(false);
-            cb.onSuccess(u);
-        } else {
-            cb.onError("Wrong password (offline)");
-        }
+        int iterations = PrefsManager.get().getPasswordIterations();
+        // PBKDF2 runs on the hash worker; the result comes back on the main thread.
+        PasswordHashUtil.verifyAsync(plainPassword.toCharArray(), salt, hash, iterations, (ok, ms) -> {
+            if(ok){
+                PrefsManager.get().setSoftLoggedOut(false);
+                // Stored hash is weaker than this device's calibrated cost: rehash in the background.
+                if(PasswordHashUtil.needsRehash(iterations)){
+                    PrefsManager.get().saveLocalPassword(plainPassword.toCharArray());
+                }
+                cb.onSuccess(u);
+            } else {
+                cb.onError("Wrong password (offline)");
+            }
+        });
     }
 
     /* ---------------- LOGOUTS ---------------- */
@@ -1,10 +1,5 @@
 package com.moneytrackultra.cashbook;
 
-import android.content.BroadcastReceiver;
-import android.content.Context;
-import android.content.Intent;
-import android.content.IntentFilter;
-import android.os.Build;
 import android.os.Bundle;
 import android.view.View;
 import android.widget.ImageButton;
@@ -18,14 +13,12 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import java.util.LinkedHashMap;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
 public class BalanceActivity extends AppCompatActivity {
 
-    private static final boolean GROUP_BY_TITLE = true;
-    private static final String UNTITLED = "(No Title)";
-
     private TextView tvTotalBalance;
     private TextView tvTotalShoppingValue;
     private TextView tvTotalTopupValue;
@@ -33,12 +26,12 @@ public class BalanceActivity extends AppCompatActivity {
     private ImageButton btnBack;
     private TextView tvEmpty;
 
+    private final OfflineRepository repo = OfflineRepository.get();
     private BalanceAggregateAdapter adapter;
     private final List<BalanceAggregate> aggregates = new ArrayList<>();
 
-    private final BroadcastReceiver dataClearedReceiver = new BroadcastReceiver() {
-        @Override public void onReceive(Context c, Intent i) { reloadAll(); }
-    };
+    private final OfflineRepository.Observer changeObserver = this::onRepositoryChanged;
+    private boolean loaded; // aggregates hold a full load; later changes are patched in
 
     @Override
     protected void onCreate(@Nullable Bundle savedInstanceState) {
@@ -49,30 +42,26 @@ public class BalanceActivity extends AppCompatActivity {
         bindViews();
         setupBackHandler();
         setupList();
-        reloadAll();
+        repo.addObserver(changeObserver);
+        // First load happens in onResume.
     }
 
     @Override
-    protected void onStart() {
-        super.onStart();
-        IntentFilter filter = new IntentFilter(ProfileActivity.ACTION_DOMAIN_DATA_CLEARED);
-        if (Build.VERSION.SDK_INT >= 33) {
-            registerReceiver(dataClearedReceiver, filter, Context.RECEIVER_NOT_EXPORTED);
-        } else {
-            registerReceiver(dataClearedReceiver, filter);
-        }
+    protected void onStop() {
+        super.onStop();
+        repo.cancel(this);
     }
 
     @Override
-    protected void onStop() {
-        super.onStop();
-        try { unregisterReceiver(dataClearedReceiver); } catch (Exception ignored) {}
+    protected void onDestroy() {
+        super.onDestroy();
+        repo.removeObserver(changeObserver);
     }
 
     @Override
     protected void onResume() {
         super.onResume();
-        reloadAll();
+        if (!loaded) reloadAll();
     }
 
     private void bindViews() {
@@ -97,6 +86,7 @@ public class BalanceActivity extends AppCompatActivity {
     private void setupList() {
         rvWallets.setLayoutManager(new LinearLayoutManager(this));
         adapter = new BalanceAggregateAdapter();
+        adapter.setExpansionListener(this::loadDetails);
         rvWallets.setAdapter(adapter);
     }
 
@@ -107,57 +97,123 @@ public class BalanceActivity extends AppCompatActivity {
             expandedMap.put(a.key, a.expanded);
         }
 
-        aggregates.clear();
+        loaded = false; // changes until the result arrives are part of it
+        repo.load(this, r -> {
+            // Headers come straight from the category index; rows are loaded on expand.
+            List<BalanceAggregate> groups = r.getCategoryTotals();
+
+            // Restore expansion state
+            for (BalanceAggregate a : groups) {
+                Boolean wasExpanded = expandedMap.get(a.key);
+                if (wasExpanded != null && wasExpanded) {
+                    a.expanded = true;
+                    a.transactions.addAll(r.getTransactionsByCategory(a.key));
+                }
+            }
+            return groups;
+        }, this::showAggregates);
+    }
 
-        List<Transaction> all = PrefsManager.get().getTransactions();
-        if (all == null) all = new ArrayList<>();
+    private void showAggregates(List<BalanceAggregate> list) {
+        loaded = true;
+        aggregates.clear();
+        aggregates.addAll(list);
 
-        long totalIncome = 0;
-        long totalExpense = 0;
+        showTotals();
+        adapter.submit(aggregates);
 
-        Map<String, BalanceAggregate> map = new LinkedHashMap<>();
+        if (tvEmpty != null) {
+            tvEmpty.setVisibility(aggregates.isEmpty() ? View.VISIBLE : View.GONE);
+        }
+    }
 
-        for (Transaction t : all) {
-            if (t == null) continue;
-            long amt = t.getAmountMinor();
-            if (t.type == TransactionType.INCOME) totalIncome += amt;
-            else totalExpense += amt;
+    private void showTotals() {
+        LedgerTotals totals = repo.getLedgerTotals();
+        tvTotalBalance.setText(CurrencyUtil.formatMinor(totals.balanceMinor()));
+        tvTotalShoppingValue.setText(CurrencyUtil.formatMinor(totals.expenseMinor));
+        tvTotalTopupValue.setText(CurrencyUtil.formatMinor(totals.incomeMinor));
+    }
 
-            String key = GROUP_BY_TITLE
-                    ? (t.title == null || t.title.trim().isEmpty() ? UNTITLED : t.title.trim())
-                    : (t.source == null || t.source.trim().isEmpty() ? UNTITLED : t.source.trim());
+    private void onRepositoryChanged(RepositoryChange c) {
+        if (!loaded || !c.touchesTransactions()) return;
+        boolean patched = (c.kind == RepositoryChange.Kind.INSERTED || c.kind == RepositoryChange.Kind.DELETED)
+                && patchGroup(c.transaction, c.kind == RepositoryChange.Kind.INSERTED);
+        if (!patched) reloadAll();
+    }
 
-            BalanceAggregate agg = map.get(key);
-            if (agg == null) {
-                agg = new BalanceAggregate();
-                agg.key = key;
-                map.put(key, agg);
-            }
-            if (t.type == TransactionType.INCOME) {
-                agg.incomeMinor += amt;
+    /**
+     * Applies one insert / delete to its title group in place, moving the header when the
+     * group's newest row changes its place in the most-recent-first order. Returns false when
+     * that cannot be done locally (new or emptied group, unknown newest row), which needs a reload.
+     */
+    private boolean patchGroup(Transaction t, boolean inserted) {
+        String key = t.category();
+        int index = -1;
+        for (int i = 0; i < aggregates.size(); i++) {
+            if (aggregates.get(i).key.equals(key)) { index = i; break; }
+        }
+        if (index < 0) return false;
+        BalanceAggregate agg = aggregates.get(index);
+
+        long amt = inserted ? t.getAmountMinor() : -t.getAmountMinor();
+        if (t.type == TransactionType.INCOME) agg.incomeMinor += amt;
+        else agg.expenseMinor += amt;
+
+        // Rows are only kept once loaded (see loadDetails), newest first.
+        if (!agg.transactions.isEmpty()) {
+            if (inserted) {
+                int pos = Collections.binarySearch(agg.transactions, t, PrefsManager.NEWEST_FIRST);
+                agg.transactions.add(pos < 0 ? -(pos + 1) : pos, t);
             } else {
-                agg.expenseMinor += amt;
+                for (int i = 0; i < agg.transactions.size(); i++) {
+                    if (agg.transactions.get(i).id == t.id) { agg.transactions.remove(i); break; }
+                }
+                if (agg.transactions.isEmpty()) return false;
             }
-            agg.transactions.add(t);
+        } else if (!inserted && agg.incomeMinor == 0 && agg.expenseMinor == 0) {
+            return false; // possibly the group's last row
         }
 
-        aggregates.addAll(map.values());
-
-        // Restore expansion state
-        for (BalanceAggregate a : aggregates) {
-            Boolean wasExpanded = expandedMap.get(a.key);
-            if (wasExpanded != null) a.expanded = wasExpanded;
+        long newest;
+        if (inserted) {
+            newest = Math.max(agg.lastEpochMillis, t.epochMillis);
+        } else if (!agg.transactions.isEmpty()) {
+            newest = agg.transactions.get(0).epochMillis;
+        } else if (t.epochMillis >= agg.lastEpochMillis) {
+            return false; // the newest row went and the next one is not loaded
+        } else {
+            newest = agg.lastEpochMillis;
         }
 
-        long net = totalIncome - totalExpense;
-        tvTotalBalance.setText(CurrencyUtil.formatMinor(net));
-        tvTotalShoppingValue.setText(CurrencyUtil.formatMinor(totalExpense));
-        tvTotalTopupValue.setText(CurrencyUtil.formatMinor(totalIncome));
+        showTotals();
+        if (newest != agg.lastEpochMillis) {
+            agg.lastEpochMillis = newest;
+            if (!inOrder(index)) {
+                aggregates.remove(index);
+                int to = 0;
+                while (to < aggregates.size() && aggregates.get(to).lastEpochMillis >= newest) to++;
+                aggregates.add(to, agg);
+                adapter.submit(aggregates);
+            }
+        }
+        adapter.refresh(agg);
+        return true;
+    }
 
-        adapter.submit(aggregates);
+    // Headers are most recently active first (category_totals.last_epoch).
+    private boolean inOrder(int index) {
+        long last = aggregates.get(index).lastEpochMillis;
+        return (index == 0 || aggregates.get(index - 1).lastEpochMillis >= last)
+                && (index == aggregates.size() - 1 || aggregates.get(index + 1).lastEpochMillis <= last);
+    }
 
-        if (tvEmpty != null) {
-            tvEmpty.setVisibility(aggregates.isEmpty() ? View.VISIBLE : View.GONE);
-        }
+    // Rows of a group are read when it is first expanded.
+    private void loadDetails(BalanceAggregate agg) {
+        if (!agg.transactions.isEmpty()) return;
+        repo.load(this, r -> r.getTransactionsByCategory(agg.key), rows -> {
+            if (!agg.transactions.isEmpty()) return;
+            agg.transactions.addAll(rows);
+            adapter.refresh(agg);
+        });
     }
-}
\ No newline at end of file
+}
@@ -7,6 +7,7 @@ public class BalanceAggregate {
     public String key;
     public long incomeMinor;
     public long expenseMinor;
+    public long lastEpochMillis; // newest transaction in the group; headers are ordered by it
     public boolean expanded = false;
     public List<Transaction> transactions = new ArrayList<>();
 
@@ -10,16 +10,39 @@ import android.widget.LinearLayout;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class BalanceAggregateAdapter extends RecyclerView.Adapter<BalanceAggregateAdapter.AggVH> {
 
-    private final List<BalanceAggregate> data = new ArrayList<>();
+    private static final DiffUtil.ItemCallback<BalanceAggregate> DIFF = new DiffUtil.ItemCallback<BalanceAggregate>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull BalanceAggregate a, @NonNull BalanceAggregate b) {
+            return a.key.equals(b.key);
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull BalanceAggregate a, @NonNull BalanceAggregate b) {
+            return a.incomeMinor == b.incomeMinor
+                    && a.expenseMinor == b.expenseMinor
+                    && a.expanded == b.expanded
+                    && a.transactions.size() == b.transactions.size();
+        }
+    };
+
+    // Groups are diffed by key in the background; BalanceActivity patches groups in place
+    // and calls refresh(), so a group's content only changes on the main thread.
+    private final AsyncListDiffer<BalanceAggregate> differ = new AsyncListDiffer<>(this, DIFF);
+    // Stable ids per group key, handed out once and never reused.
+    private final Map<String, Long> ids = new HashMap<>();
     private ViewGroup parentRef;
 
     public interface ExpansionListener {
@@ -32,10 +55,30 @@ public class BalanceAggregateAdapter extends RecyclerView.Adapter<BalanceAggrega
         this.expansionListener = listener;
     }
 
+    public BalanceAggregateAdapter() {
+        setHasStableIds(true);
+    }
+
+    /** Copies the list; diffed against the current groups in the background. */
     public void submit(List<BalanceAggregate> list) {
-        data.clear();
-        if (list != null) data.addAll(list);
-        notifyDataSetChanged();
+        differ.submitList(list == null || list.isEmpty() ? null : new ArrayList<>(list));
+    }
+
+    /** Rebinds one group, e.g. after its rows finished loading. */
+    public void refresh(BalanceAggregate agg) {
+        int pos = differ.getCurrentList().indexOf(agg);
+        if (pos >= 0) notifyItemChanged(pos);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        String key = differ.getCurrentList().get(position).key;
+        Long id = ids.get(key);
+        if (id == null) {
+            id = (long) ids.size();
+            ids.put(key, id);
+        }
+        return id;
     }
 
     @NonNull
@@ -49,12 +92,12 @@ public class BalanceAggregateAdapter extends RecyclerView.Adapter<BalanceAggrega
 
     @Override
     public void onBindViewHolder(@NonNull AggVH h, int position) {
-        h.bind(data.get(position));
+        h.bind(differ.getCurrentList().get(position));
     }
 
     @Override
     public int getItemCount() {
-        return data.size();
+        return differ.getCurrentList().size();
     }
 
     class AggVH extends RecyclerView.ViewHolder {
@@ -63,6 +106,7 @@ public class BalanceAggregateAdapter extends RecyclerView.Adapter<BalanceAggrega
         View header;
         RecyclerView rvDetails;
         BalanceDetailAdapter detailAdapter;
+        String boundKey;
 
         AggVH(@NonNull View itemView) {
             super(itemView);
@@ -79,6 +123,11 @@ public class BalanceAggregateAdapter extends RecyclerView.Adapter<BalanceAggrega
         }
 
         void bind(BalanceAggregate agg) {
+            // Recycled for another group: drop the old rows instead of diffing against them.
+            if (!agg.key.equals(boundKey)) {
+                detailAdapter.submit(null);
+                boundKey = agg.key;
+            }
             tvName.setText(agg.key);
             long net = agg.netMinor();
             tvAmount.setText(CurrencyUtil.formatMinor(net));
@@ -98,19 +147,24 @@ public class BalanceAggregateAdapter extends RecyclerView.Adapter<BalanceAggrega
 
         private void toggle(int pos) {
             if (pos == RecyclerView.NO_POSITION) return;
+            List<BalanceAggregate> data = differ.getCurrentList();
             BalanceAggregate target = data.get(pos);
 
-            // Single expand behavior
-            for (BalanceAggregate a : data) {
-                if (a != target && a.expanded) a.expanded = false;
-            }
-            target.expanded = !target.expanded;
-
             // Animated transition
             if (parentRef != null) {
                 TransitionManager.beginDelayedTransition(parentRef, new AutoTransition());
             }
-            notifyDataSetChanged();
+
+            // Single expand behavior: only the collapsed group and the target rebind.
+            for (int i = 0; i < data.size(); i++) {
+                BalanceAggregate a = data.get(i);
+                if (a != target && a.expanded) {
+                    a.expanded = false;
+                    notifyItemChanged(i);
+                }
+            }
+            target.expanded = !target.expanded;
+            notifyItemChanged(pos);
 
             if (expansionListener != null && target.expanded) {
                 expansionListener.onExpanded(target);
@@ -8,20 +8,24 @@ import android.widget.TextView;
 import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
-import java.text.SimpleDateFormat;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Locale;
 
 class BalanceDetailAdapter extends RecyclerView.Adapter<BalanceDetailAdapter.DetailVH> {
 
-    private final List<Transaction> items = new ArrayList<>();
-    private final SimpleDateFormat df = new SimpleDateFormat("d MMM yyyy", Locale.getDefault());
+    private final TransactionListDiffer items = new TransactionListDiffer(this, true);
 
+    BalanceDetailAdapter() {
+        setHasStableIds(true);
+    }
+
+    /** Diffed against the current rows in the background; null clears at once. */
     void submit(List<Transaction> list) {
-        items.clear();
-        if (list != null) items.addAll(list);
-        notifyDataSetChanged();
+        items.submit(list);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return items.get(position).id;
     }
 
     @NonNull
@@ -42,7 +46,7 @@ class BalanceDetailAdapter extends RecyclerView.Adapter<BalanceDetailAdapter.Det
 
         long amt = t.getAmountMinor();
         boolean income = t.type == TransactionType.INCOME;
-        h.tvTxAmount.setText((income ? "+ " : "- ") + CurrencyUtil.formatMinor(amt));
+        h.tvTxAmount.setText(CurrencyUtil.formatMinor(income ? "+ " : "- ", amt));
         int c = h.itemView.getContext().getColor(income ? R.color.incomeGreen : R.color.expenseRed);
         h.tvTxAmount.setTextColor(c);
 
@@ -51,7 +55,7 @@ class BalanceDetailAdapter extends RecyclerView.Adapter<BalanceDetailAdapter.Det
 
         String dateStr = (t.date != null && !t.date.isEmpty())
                 ? t.date
-                : (t.epochMillis > 0 ? df.format(t.epochMillis) : "");
+                : (t.epochMillis > 0 ? DateLabels.get().shortDay(t.epochDay) : "");
         String source = t.source == null ? "" : t.source;
         if (!dateStr.isEmpty() && !source.isEmpty()) {
             h.tvTxDateSource.setText(dateStr + " • " + source);
@@ -11,7 +11,9 @@ import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
 
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Minimal Buying Limit screen (no advanced logic).
@@ -36,6 +38,12 @@ public class BuyingLimitActivity extends AppCompatActivity {
 
     private boolean suppressAmountWatcher = false;
 
+    private final OfflineRepository repo = OfflineRepository.get();
+    // Limits with current usage, keyed by LimitUsageIndex.normalize(platform); loaded off the main thread.
+    private final Map<String, BuyingLimit> limits = new HashMap<>();
+    private final OfflineRepository.Observer changeObserver = this::onRepositoryChanged;
+    private boolean loaded;
+
     @Override
     protected void onCreate(@Nullable Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -48,8 +56,58 @@ public class BuyingLimitActivity extends AppCompatActivity {
         setupFrequencySpinner();
         setupAmountFormatter();
 
-        loadPlatform(selectedPlatform);
         btnSaveLimit.setOnClickListener(v -> saveCurrent());
+        repo.addObserver(changeObserver);
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        if (!loaded) reloadLimits(true); // otherwise kept current by onRepositoryChanged
+    }
+
+    private void reloadLimits(boolean resetForm) {
+        loaded = false; // changes until the result arrives are part of it
+        repo.load(this, OfflineRepository::getBuyingLimitsWithUsage, list -> {
+            loaded = true;
+            setLimits(list);
+            refreshAllCards();
+            if (resetForm) loadPlatform(selectedPlatform);
+        });
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        repo.cancel(this);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        repo.removeObserver(changeObserver);
+    }
+
+    // Usage only moves with expenses; limits with limit edits or a clear. Cards are refreshed
+    // from the usage index without touching the form the user may be editing.
+    private void onRepositoryChanged(RepositoryChange c) {
+        if (!loaded) return;
+        if (c.kind == RepositoryChange.Kind.INSERTED || c.kind == RepositoryChange.Kind.DELETED) {
+            if (c.transaction.type != TransactionType.EXPENSE) return;
+        }
+        // A clear removed the limit being edited too, so the form goes back to "No limit set".
+        reloadLimits(c.kind == RepositoryChange.Kind.CLEARED);
+    }
+
+    private void setLimits(List<BuyingLimit> list) {
+        limits.clear();
+        for (BuyingLimit b : list) {
+            if (b != null && b.platform != null) limits.put(LimitUsageIndex.normalize(b.platform), b);
+        }
+    }
+
+    private BuyingLimit limitFor(String platform) {
+        return limits.get(LimitUsageIndex.normalize(platform));
     }
 
     private void bindViews() {
@@ -186,7 +244,7 @@ public class BuyingLimitActivity extends AppCompatActivity {
     }
 
     private void loadPlatform(String platform) {
-        BuyingLimit limit = PrefsManager.get().getBuyingLimit(platform);
+        BuyingLimit limit = limitFor(platform);
         if (limit == null) {
             etLimitAmount.setText("");
             spinnerFrequency.setSelection(2);
@@ -215,19 +273,21 @@ public class BuyingLimitActivity extends AppCompatActivity {
     }
 
     private long computeUsageForPlatform(String platform) {
-        List<Transaction> tx = PrefsManager.get().getTransactions();
-        if (tx == null) return 0;
-        long sum = 0;
-        for (Transaction t : tx) {
-            if (t == null) continue;
-            if (t.type == TransactionType.EXPENSE &&
-                    t.source != null &&
-                    t.source.equalsIgnoreCase(platform)) {
-                long amt = t.amount < 0 ? Math.abs(t.amount) : t.amount;
-                sum += amt;
-            }
+        // Maintained per-period counter (amounts treated as positive), as of the last load.
+        BuyingLimit b = limitFor(platform);
+        return b == null ? 0 : b.usedInPeriod;
+    }
+
+    // Every card, so platforms whose limit is gone (e.g. after a clear) drop back to "No Limit".
+    private void refreshAllCards() {
+        if (cardViews == null) return;
+        for (View v : cardViews) {
+            String platform = getPlatformFromView(v);
+            if (platform == null) continue;
+            BuyingLimit b = limitFor(platform);
+            if (b == null) updateCardUsage(platform, 0, 0);
+            else updateCardUsage(platform, b.usedInPeriod, b.limitAmount);
         }
-        return sum;
     }
 
     private void updateCardUsage(String platform, long used, long limit) {
@@ -269,17 +329,17 @@ public class BuyingLimitActivity extends AppCompatActivity {
             try { amount = Long.parseLong(digits); } catch (NumberFormatException ignored) {}
         }
 
-        BuyingLimit existing = PrefsManager.get().getBuyingLimit(selectedPlatform);
-        if (existing == null) {
-            existing = new BuyingLimit(selectedPlatform, amount, selectedFrequency, 0, System.currentTimeMillis());
-        } else {
-            existing.limitAmount = amount;
-            existing.frequency = selectedFrequency;
-        }
-        PrefsManager.get().upsertBuyingLimit(existing);
-
-        long used = computeUsageForPlatform(selectedPlatform);
-        updateCardUsage(selectedPlatform, used, amount);
-        tvStatus.setText("Saved: " + formatUsage(used, amount));
+        final String platform = selectedPlatform;
+        final BuyingLimitFrequency frequency = selectedFrequency;
+        final long limitAmount = amount;
+        repo.write(this, r -> {
+            r.upsertBuyingLimit(platform, limitAmount, frequency);
+            return r.getBuyingLimitsWithUsage();
+        }, list -> {
+            setLimits(list);
+            long used = computeUsageForPlatform(platform);
+            updateCardUsage(platform, used, limitAmount);
+            tvStatus.setText("Saved: " + formatUsage(used, limitAmount));
+        });
     }
 }
\ No newline at end of file
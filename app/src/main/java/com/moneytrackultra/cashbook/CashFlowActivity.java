@@ -10,9 +10,6 @@ import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
 
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  * Cash Flow screen (simplified).
  * Removed filtering spinners. Shows all transactions of current type.
@@ -30,6 +27,9 @@ public class CashFlowActivity extends AppCompatActivity {
 
     private TransactionType currentType = TransactionType.INCOME;
 
+    private final OfflineRepository.Observer changeObserver = this::onRepositoryChanged;
+    private boolean loaded; // list holds a full load of currentType; later changes are patched in
+
     @Override
     protected void onCreate(@Nullable Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -40,13 +40,47 @@ public class CashFlowActivity extends AppCompatActivity {
         setupTabs();
         setupRecycler();
         styleTabs();
-        updateUI();
+        repo.addObserver(changeObserver);
+        // First load happens in onResume.
     }
 
     @Override
     protected void onResume() {
         super.onResume();
-        updateUI();
+        if (!loaded) updateUI();
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        repo.cancel(this);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        repo.removeObserver(changeObserver);
+    }
+
+    private void onRepositoryChanged(RepositoryChange c) {
+        if (!loaded) return; // the pending full load will include it
+        switch (c.kind) {
+            case INSERTED:
+                if (c.transaction.type != currentType) return;
+                adapter.insert(c.transaction);
+                break;
+            case DELETED:
+                if (c.transaction.type != currentType) return;
+                adapter.remove(c.id);
+                break;
+            case CLEARED:
+            case RELOADED:
+                updateUI();
+                return;
+            default:
+                return;
+        }
+        showTotal(currentType);
     }
 
     /* ---------------- Binding & Navigation ---------------- */
@@ -113,22 +147,18 @@ public class CashFlowActivity extends AppCompatActivity {
     private void updateUI() {
         if (adapter == null) return;
 
-        List<Transaction> all = PrefsManager.get().getTransactions();
-        if (all == null) all = new ArrayList<>();
-
-        List<Transaction> filtered = new ArrayList<>();
-        long totalMinor = 0;
-
-        for (Transaction t : all) {
-            if (t == null) continue;
-            if (t.type == currentType) {
-                filtered.add(t);
-                totalMinor += t.getAmountMinor(); // amounts stored positive
-            }
-        }
-
-        adapter.submit(filtered);
+        final TransactionType type = currentType;
+        loaded = false; // changes until the result arrives are part of it
+        repo.load(this, r -> r.getTransactionsByType(null, null, type), filtered -> {
+            if (type != currentType) return; // tab switched while loading; a newer load follows
+            loaded = true;
+            adapter.submit(filtered);
+            showTotal(type);
+        });
+    }
 
+    private void showTotal(TransactionType type) {
+        long totalMinor = repo.getLedgerTotals().totalMinor(type);
         // If expenses are stored as positive numbers (like incomes),
         // we just display total directly. Change if you use negatives.
         tvSummaryAmount.setText(CurrencyUtil.formatMinor(totalMinor));
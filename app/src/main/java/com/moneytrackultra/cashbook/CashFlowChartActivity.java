@@ -4,7 +4,6 @@ import android.graphics.Color;
 import android.os.Bundle;
 import android.util.Log;
 import android.view.View;
-import android.view.ViewTreeObserver;
 import android.widget.AdapterView;
 import android.widget.ArrayAdapter;
 import android.widget.Spinner;
@@ -24,22 +23,23 @@ import com.github.mikephil.charting.data.LineData;
 import com.github.mikephil.charting.data.LineDataSet;
 import com.github.mikephil.charting.formatter.IndexAxisValueFormatter;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.LinkedHashSet;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
-import java.util.Set;
+import java.util.Map;
 
 /**
- * Weekly chart screen using Title as category; Month derived from epochMillis or date string.
+ * Weekly chart screen using Title as category; Month derived from epochMillis.
+ * Spinners and the weekly series are read from the CashFlowCube, built off the main thread
+ * through OfflineRepository.
  */
 public class CashFlowChartActivity extends AppCompatActivity {
 
     private static final String TAG = "CashFlowChart";
     private static final String ALL = "All";
+    private static final int ANY_MONTH = CashFlowCube.ANY_MONTH;
 
     private Spinner spinnerSource, spinnerMonth;
     private TextView tvChartLabel;
@@ -56,16 +56,18 @@ public class CashFlowChartActivity extends AppCompatActivity {
 
     private final List<String> sources = new ArrayList<>();
     private final List<String> months  = new ArrayList<>();
+    private final Map<String, Integer> monthKeys = new HashMap<>(); // label -> year * 12 + month
 
     private final Calendar cal = Calendar.getInstance();
 
-    private final SimpleDateFormat[] possibleFormats = new SimpleDateFormat[] {
-            new SimpleDateFormat("EEEE, dd MMMM yyyy", Locale.getDefault()),
-            new SimpleDateFormat("d MMM yyyy", Locale.getDefault()),
-            new SimpleDateFormat("dd MMM yyyy", Locale.getDefault()),
-            new SimpleDateFormat("dd/MM/yyyy", Locale.getDefault()),
-            new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault())
-    };
+    private final OfflineRepository repo = OfflineRepository.get();
+    private boolean loaded;     // cube built; until then spinner callbacks have nothing to show
+    // From the load callback; PrefsManager keeps both current in place, so the main thread
+    // reads them without going through its synchronized getters.
+    private CashFlowCube cube;
+    private WeeklyRollup weeklyRollup;
+    private boolean hintShown;
+    private final OfflineRepository.Observer changeObserver = this::onRepositoryChanged;
 
     @Override
     protected void onCreate(@Nullable Bundle savedInstanceState) {
@@ -76,37 +78,65 @@ public class CashFlowChartActivity extends AppCompatActivity {
         bindViews();
         setupBackHandler();
 
-        collectMonths();
-        collectCategories();
+        // Filled once the cube is loaded (onResume).
+        months.add(ALL);
+        sources.add(ALL);
 
         setupSpinners();
         setupRecycler();
         setupChart();
-        refreshData();
-
-        // Debug: show if spinner has only one entry
-        spinnerSource.getViewTreeObserver().addOnGlobalLayoutListener(
-                new ViewTreeObserver.OnGlobalLayoutListener() {
-                    @Override public void onGlobalLayout() {
-                        if (sources.size() <= 1) {
-                            Toast.makeText(CashFlowChartActivity.this,
-                                    "Only 'All' category. Add transactions with a Title.",
-                                    Toast.LENGTH_SHORT).show();
-                        }
-                        spinnerSource.getViewTreeObserver().removeOnGlobalLayoutListener(this);
-                    }
-                });
+        repo.addObserver(changeObserver);
     }
 
     @Override
     protected void onResume() {
         super.onResume();
+        if (loaded) return; // kept current by onRepositoryChanged
+        // Build the cube / weekly rollup off the main thread; reads after that are in-memory.
+        repo.load(this, r -> new ChartSources(r.getCashFlowCube(), r.getWeeklyRollup()), s -> {
+            cube = s.cube;
+            weeklyRollup = s.weeklyRollup;
+            loaded = true;
+            collectMonths();
+            collectCategories();
+            refreshAdapters();
+            refreshData();
+            showSingleCategoryHint();
+        });
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        repo.cancel(this);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        repo.removeObserver(changeObserver);
+    }
+
+    // The cube and weekly rollup are already updated; only the filters and series are re-read.
+    private void onRepositoryChanged(RepositoryChange c) {
+        if (!loaded || !c.touchesTransactions()) return;
         collectMonths();
         collectCategories();
         refreshAdapters();
         refreshData();
     }
 
+    // Shown once: only 'All' means no transaction of this type has a title yet.
+    private void showSingleCategoryHint() {
+        if (hintShown) return;
+        hintShown = true;
+        if (sources.size() <= 1) {
+            Toast.makeText(this,
+                    "Only 'All' category. Add transactions with a Title.",
+                    Toast.LENGTH_SHORT).show();
+        }
+    }
+
     private void parseIntent() {
         String t = getIntent().getStringExtra("type");
         if (t != null) {
@@ -138,67 +168,37 @@ public class CashFlowChartActivity extends AppCompatActivity {
     }
 
     // ---------------- Data Collection ----------------
-    private List<Transaction> allTransactions() {
-        List<Transaction> list = PrefsManager.get().getTransactions();
-        return list == null ? new ArrayList<>() : list;
-    }
-
     private void collectMonths() {
-        Set<String> set = new LinkedHashSet<>();
-        for (Transaction t : allTransactions()) {
-            if (t == null || t.type != type) continue;
-            String m = extractMonthYear(t);
-            if (m != null) set.add(m);
-        }
         months.clear();
+        monthKeys.clear();
         months.add(ALL);
-        months.addAll(set);
+        for (int key : cube.months(type)) {
+            String label = monthLabel(key);
+            months.add(label);
+            monthKeys.put(label, key);
+        }
         if (!months.contains(selectedMonth)) selectedMonth = ALL;
         Log.d(TAG, "Months: " + months);
     }
 
     private void collectCategories() {
-        Set<String> set = new LinkedHashSet<>();
-        for (Transaction t : allTransactions()) {
-            if (t == null || t.type != type) continue;
-            String m = extractMonthYear(t);
-            if (!ALL.equals(selectedMonth) && !selectedMonth.equals(m)) continue;
-            String title = canonicalTitle(t);
-            if (!title.isEmpty()) set.add(title);
-        }
         sources.clear();
         sources.add(ALL);
-        sources.addAll(set);
+        sources.addAll(cube.categories(type, selectedMonthKey()));
         if (!sources.contains(selectedSource)) selectedSource = ALL;
         Log.d(TAG, "Sources(categories): " + sources + " selected=" + selectedSource);
     }
 
-    private String canonicalTitle(Transaction t) {
-        if (t.title != null) {
-            String tt = t.title.trim();
-            if (!tt.isEmpty()) return tt;
-        }
-        // fallback for blank
-        return (t.type == TransactionType.INCOME) ? "Income" : "Expense";
-    }
-
-    private String extractMonthYear(Transaction t) {
-        long epoch = t.epochMillis;
-        if (t.date != null && !t.date.trim().isEmpty()) {
-            Long parsed = parseDateEpoch(t.date.trim());
-            if (parsed != null) epoch = parsed;
-        }
-        if (epoch <= 0) return null;
-        cal.setTimeInMillis(epoch);
+    // year * 12 + month -> "October 2025"
+    private String monthLabel(int key) {
+        cal.clear();
+        cal.set(key / 12, key % 12, 1);
         return cal.getDisplayName(Calendar.MONTH, Calendar.LONG, Locale.getDefault()) + " " + cal.get(Calendar.YEAR);
     }
 
-    private Long parseDateEpoch(String dateStr) {
-        for (SimpleDateFormat f : possibleFormats) {
-            try { return f.parse(dateStr).getTime(); }
-            catch (ParseException ignored) {}
-        }
-        return null;
+    private int selectedMonthKey() {
+        Integer key = monthKeys.get(selectedMonth);
+        return key == null ? ANY_MONTH : key;
     }
 
     // ---------------- Spinners ----------------
@@ -231,6 +231,7 @@ public class CashFlowChartActivity extends AppCompatActivity {
         spinnerMonth.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
             @Override public void onItemSelected(AdapterView<?> parent, View view, int pos, long id) {
                 selectedMonth = months.get(pos);
+                if (!loaded) return;
                 collectCategories(); // categories depend on chosen month
                 refreshAdapters();
                 refreshData();
@@ -286,52 +287,18 @@ public class CashFlowChartActivity extends AppCompatActivity {
     }
 
     private void refreshData() {
+        if (!loaded) return;
         List<WeeklyAggregate> weekly = buildWeekly();
         weeklyAdapter.submit(weekly);
         buildChart(weekly);
     }
 
     private List<WeeklyAggregate> buildWeekly() {
-        List<Transaction> all = allTransactions();
-        List<Transaction> filtered = new ArrayList<>();
-
-        for (Transaction t : all) {
-            if (t == null || t.type != type) continue;
-            String monthYear = extractMonthYear(t);
-            if (!ALL.equals(selectedMonth) && !selectedMonth.equals(monthYear)) continue;
-            String cat = canonicalTitle(t);
-            if (!ALL.equals(selectedSource) && !cat.equals(selectedSource)) continue;
-            filtered.add(t);
-        }
-
-        if (filtered.isEmpty()) return new ArrayList<>();
-
-        java.util.Map<Integer, WeeklyAggregate> map = new java.util.LinkedHashMap<>();
-        Calendar c = Calendar.getInstance();
-        c.setFirstDayOfWeek(Calendar.MONDAY);
-
-        for (Transaction t : filtered) {
-            long epoch = t.epochMillis;
-            if (t.date != null && !t.date.trim().isEmpty()) {
-                Long parsed = parseDateEpoch(t.date.trim());
-                if (parsed != null) epoch = parsed;
-            }
-            c.setTimeInMillis(epoch);
-            int w = c.get(Calendar.WEEK_OF_MONTH); // 1-based
-            WeeklyAggregate agg = map.get(w);
-            if (agg == null) {
-                agg = new WeeklyAggregate();
-                agg.weekIndex = w;
-                agg.type = type;
-                agg.label = "W" + w;
-                map.put(w, agg);
-            }
-            agg.amountMinor += t.getAmountMinor();
-        }
-
-        List<WeeklyAggregate> list = new ArrayList<>(map.values());
-        list.sort((a,b)->Integer.compare(a.weekIndex,b.weekIndex));
-        return list;
+        String category = ALL.equals(selectedSource) ? null : selectedSource;
+        int month = selectedMonthKey();
+        // All months: true calendar weeks; a single month keeps its week-of-month buckets.
+        if (month == ANY_MONTH) return weeklyRollup.series(type, category);
+        return cube.weekly(type, month, category);
     }
 
     private void buildChart(List<WeeklyAggregate> list) {
@@ -364,4 +331,15 @@ public class CashFlowChartActivity extends AppCompatActivity {
         lineChart.setData(new LineData(ds));
         lineChart.invalidate();
     }
-}
\ No newline at end of file
+
+    // Result of the load in onResume.
+    private static final class ChartSources {
+        final CashFlowCube cube;
+        final WeeklyRollup weeklyRollup;
+
+        ChartSources(CashFlowCube cube, WeeklyRollup weeklyRollup) {
+            this.cube = cube;
+            this.weeklyRollup = weeklyRollup;
+        }
+    }
+}
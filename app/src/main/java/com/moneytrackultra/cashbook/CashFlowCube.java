@@ -0,0 +1,183 @@
+package com.moneytrackultra.cashbook;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalField;
+import java.time.temporal.WeekFields;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * (month, category, type) -> amount / count cube with a week-of-month breakdown, for the
+ * Cash Flow chart filters.
+ *
+ * month is year * 12 + (month - 1) of Transaction.epochDay; category is
+ * Transaction.category(); weeks follow Calendar.WEEK_OF_MONTH with Monday as the first day
+ * (index 0..6, 0 = days before the first full week when the locale requires one).
+ *
+ * Spinners and the weekly series are answered from the cells only: O(months x categories)
+ * at worst, independent of the number of transactions. Maintained per insert / delete;
+ * in-memory, built lazily by PrefsManager.
+ */
+final class CashFlowCube implements LedgerIndex {
+
+    /** Month filter value meaning "every month". */
+    static final int ANY_MONTH = Integer.MIN_VALUE;
+    static final int WEEK_SLOTS = 7;
+
+    // Ignore case for ordering only; "Food" and "food" stay separate categories.
+    private static final Comparator<String> BY_NAME =
+            String.CASE_INSENSITIVE_ORDER.thenComparing(Comparator.naturalOrder());
+
+    private static final class Cell {
+        long amountMinor;
+        int count;
+        final long[] weekAmount = new long[WEEK_SLOTS];
+        final int[] weekCount = new int[WEEK_SLOTS];
+    }
+
+    // Per type code (CashbookDatabase.TYPE_*): month -> category -> cell, months ascending.
+    @SuppressWarnings("unchecked")
+    private final TreeMap<Integer, Map<String, Cell>>[] byType = new TreeMap[]{new TreeMap<>(), new TreeMap<>()};
+
+    private TemporalField weekOfMonth = weekOfMonthField();
+    private boolean loaded;
+
+    synchronized boolean isCurrent() {
+        return loaded;
+    }
+
+    /* ---------- LedgerIndex ---------- */
+
+    @Override
+    public synchronized void onInserted(Transaction t) {
+        if (loaded) add(t, 1);
+    }
+
+    @Override
+    public synchronized void onDeleted(Transaction t) {
+        if (loaded) add(t, -1);
+    }
+
+    @Override
+    public synchronized void rebuild(List<Transaction> all) {
+        byType[0].clear();
+        byType[1].clear();
+        weekOfMonth = weekOfMonthField();
+        loaded = true;
+        if (all != null) {
+            for (Transaction t : all) add(t, 1);
+        }
+    }
+
+    @Override
+    public boolean needsRebuild() {
+        return false; // built on first read instead of at startup
+    }
+
+    /* ---------- Queries ---------- */
+
+    /** Months with at least one transaction of this type, newest first. */
+    synchronized List<Integer> months(TransactionType type) {
+        return new ArrayList<>(byType[CashbookDatabase.typeCode(type)].descendingKeySet());
+    }
+
+    /** Categories used by this type in a month (or ANY_MONTH), sorted ignoring case. */
+    synchronized List<String> categories(TransactionType type, int month) {
+        TreeSet<String> out = new TreeSet<>(BY_NAME);
+        TreeMap<Integer, Map<String, Cell>> months = byType[CashbookDatabase.typeCode(type)];
+        if (month == ANY_MONTH) {
+            for (Map<String, Cell> cats : months.values()) out.addAll(cats.keySet());
+        } else {
+            Map<String, Cell> cats = months.get(month);
+            if (cats != null) out.addAll(cats.keySet());
+        }
+        return new ArrayList<>(out);
+    }
+
+    /**
+     * Week-of-month totals for a type, month (or ANY_MONTH) and category (null = all).
+     * Only weeks with transactions are returned, ascending.
+     */
+    synchronized List<WeeklyAggregate> weekly(TransactionType type, int month, String category) {
+        long[] amount = new long[WEEK_SLOTS];
+        int[] count = new int[WEEK_SLOTS];
+        TreeMap<Integer, Map<String, Cell>> months = byType[CashbookDatabase.typeCode(type)];
+        if (month == ANY_MONTH) {
+            for (Map<String, Cell> cats : months.values()) accumulate(cats, category, amount, count);
+        } else {
+            Map<String, Cell> cats = months.get(month);
+            if (cats != null) accumulate(cats, category, amount, count);
+        }
+
+        List<WeeklyAggregate> out = new ArrayList<>();
+        for (int w = 0; w < WEEK_SLOTS; w++) {
+            if (count[w] == 0) continue;
+            WeeklyAggregate agg = new WeeklyAggregate(w, amount[w], type, "W" + w);
+            agg.txCount = count[w];
+            out.add(agg);
+        }
+        return out;
+    }
+
+    private static void accumulate(Map<String, Cell> cats, String category, long[] amount, int[] count) {
+        if (category != null) {
+            Cell c = cats.get(category);
+            if (c != null) addWeeks(c, amount, count);
+        } else {
+            for (Cell c : cats.values()) addWeeks(c, amount, count);
+        }
+    }
+
+    private static void addWeeks(Cell c, long[] amount, int[] count) {
+        for (int w = 0; w < WEEK_SLOTS; w++) {
+            amount[w] += c.weekAmount[w];
+            count[w] += c.weekCount[w];
+        }
+    }
+
+    /* ---------- Maintenance ---------- */
+
+    private void add(Transaction t, int sign) {
+        if (t == null) return;
+        LocalDate d = EpochDays.toLocalDate(t.epochDay);
+        int month = d.getYear() * 12 + d.getMonthValue() - 1;
+        int week = d.get(weekOfMonth);
+        String category = t.category();
+
+        TreeMap<Integer, Map<String, Cell>> months = byType[CashbookDatabase.typeCode(t.type)];
+        Map<String, Cell> cats = months.get(month);
+        if (cats == null) {
+            if (sign < 0) return;
+            cats = new HashMap<>();
+            months.put(month, cats);
+        }
+        Cell c = cats.get(category);
+        if (c == null) {
+            if (sign < 0) return;
+            c = new Cell();
+            cats.put(category, c);
+        }
+        long amt = sign * t.getAmountMinor();
+        c.amountMinor += amt;
+        c.count += sign;
+        c.weekAmount[week] += amt;
+        c.weekCount[week] += sign;
+        if (c.count <= 0) {
+            cats.remove(category);
+            if (cats.isEmpty()) months.remove(month);
+        }
+    }
+
+    // Calendar.WEEK_OF_MONTH with setFirstDayOfWeek(MONDAY) and the locale's minimal days.
+    private static TemporalField weekOfMonthField() {
+        int minimalDays = WeekFields.of(Locale.getDefault()).getMinimalDaysInFirstWeek();
+        return WeekFields.of(DayOfWeek.MONDAY, minimalDays).weekOfMonth();
+    }
+}
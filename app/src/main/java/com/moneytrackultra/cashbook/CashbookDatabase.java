@@ -0,0 +1,114 @@
+package com.moneytrackultra.cashbook;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+/**
+ * Local SQLite database (cashbook.db).
+ *
+ * Schema (v1):
+ *  - transactions: one row per Transaction. tx_id is the model id and is unique; duplicates
+ *    from older builds are renumbered by PrefsManager before they are written.
+ *    category holds Transaction.category() and epoch_day Transaction.epochDay at write time.
+ *    Indexes: (epoch_millis, tx_id), (type, epoch_millis), source (NOCASE), tx_id (UNIQUE),
+ *    (category, epoch_millis).
+ *  - category_totals: one row per category with income / expense sums (minor units), row count
+ *    and newest epoch_millis. Maintained by SqliteTransactionStore in the same DB transaction
+ *    as each write.
+ *  - weekly_totals: one row per (type, calendar week) with the amount sum (minor units) and row
+ *    count; week_start is the epoch day of the week's Monday (WeeklyRollup.FIRST_DAY).
+ *    Maintained the same way as category_totals.
+ *
+ * Data from before the database (transactions_json) is moved in by PrefsManager, with epoch_day
+ * resolved there, so there is no upgrade path yet.
+ */
+class CashbookDatabase extends SQLiteOpenHelper {
+
+    private static final String DB_NAME = "cashbook.db";
+    private static final int DB_VERSION = 1;
+
+    static final String T_TRANSACTIONS = "transactions";
+    static final String T_CATEGORY_TOTALS = "category_totals";
+    static final String T_WEEKLY_TOTALS = "weekly_totals";
+
+    // Stored type codes (do not reuse enum ordinals directly).
+    static final int TYPE_INCOME = 0;
+    static final int TYPE_EXPENSE = 1;
+
+    CashbookDatabase(Context ctx) {
+        super(ctx.getApplicationContext(), DB_NAME, null, DB_VERSION);
+        setWriteAheadLoggingEnabled(true);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + T_TRANSACTIONS + " ("
+                + "_id INTEGER PRIMARY KEY AUTOINCREMENT,"
+                + "tx_id INTEGER NOT NULL,"
+                + "type INTEGER NOT NULL,"
+                + "amount_minor INTEGER NOT NULL,"
+                + "amount INTEGER NOT NULL,"
+                + "epoch_millis INTEGER NOT NULL,"
+                + "title TEXT,"
+                + "source TEXT,"
+                + "date TEXT,"
+                + "category TEXT NOT NULL,"
+                + "epoch_day INTEGER NOT NULL)");
+        db.execSQL("CREATE INDEX idx_tx_epoch_id ON " + T_TRANSACTIONS + "(epoch_millis, tx_id)");
+        db.execSQL("CREATE INDEX idx_tx_type_epoch ON " + T_TRANSACTIONS + "(type, epoch_millis)");
+        db.execSQL("CREATE INDEX idx_tx_source ON " + T_TRANSACTIONS + "(source COLLATE NOCASE)");
+        db.execSQL("CREATE UNIQUE INDEX idx_tx_id ON " + T_TRANSACTIONS + "(tx_id)");
+        db.execSQL("CREATE INDEX idx_tx_category_epoch ON " + T_TRANSACTIONS + "(category, epoch_millis)");
+        db.execSQL("CREATE TABLE " + T_CATEGORY_TOTALS + " ("
+                + "category TEXT PRIMARY KEY,"
+                + "income_minor INTEGER NOT NULL,"
+                + "expense_minor INTEGER NOT NULL,"
+                + "tx_count INTEGER NOT NULL,"
+                + "last_epoch INTEGER NOT NULL)");
+        db.execSQL("CREATE TABLE " + T_WEEKLY_TOTALS + " ("
+                + "type INTEGER NOT NULL,"
+                + "week_start INTEGER NOT NULL,"
+                + "amount_minor INTEGER NOT NULL,"
+                + "tx_count INTEGER NOT NULL,"
+                + "PRIMARY KEY (type, week_start))");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // First schema: nothing to upgrade from.
+    }
+
+    /** Recomputes category_totals from the transactions table. */
+    static void rebuildCategoryTotals(SQLiteDatabase db) {
+        db.execSQL("DELETE FROM " + T_CATEGORY_TOTALS);
+        db.execSQL("INSERT INTO " + T_CATEGORY_TOTALS
+                + " (category, income_minor, expense_minor, tx_count, last_epoch)"
+                + " SELECT category,"
+                + " SUM(CASE WHEN type = " + TYPE_INCOME + " THEN amount_minor ELSE 0 END),"
+                + " SUM(CASE WHEN type = " + TYPE_EXPENSE + " THEN amount_minor ELSE 0 END),"
+                + " COUNT(*), MAX(epoch_millis)"
+                + " FROM " + T_TRANSACTIONS + " GROUP BY category");
+    }
+
+    /**
+     * Recomputes weekly_totals from the transactions table. Epoch day 0 was a Thursday, so the
+     * Monday on or before a day is epoch_day minus ((epoch_day % 7 + 10) % 7); the +10 keeps
+     * SQLite's signed % non-negative. Same result as WeeklyRollup.weekStartOf.
+     */
+    static void rebuildWeeklyTotals(SQLiteDatabase db) {
+        db.execSQL("DELETE FROM " + T_WEEKLY_TOTALS);
+        db.execSQL("INSERT INTO " + T_WEEKLY_TOTALS + " (type, week_start, amount_minor, tx_count)"
+                + " SELECT type, epoch_day - ((epoch_day % 7 + 10) % 7) AS ws,"
+                + " SUM(amount_minor), COUNT(*)"
+                + " FROM " + T_TRANSACTIONS + " GROUP BY type, ws");
+    }
+
+    static int typeCode(TransactionType type) {
+        return type == TransactionType.INCOME ? TYPE_INCOME : TYPE_EXPENSE;
+    }
+
+    static TransactionType typeFromCode(int code) {
+        return code == TYPE_INCOME ? TransactionType.INCOME : TransactionType.EXPENSE;
+    }
+}
@@ -0,0 +1,102 @@
+package com.moneytrackultra.cashbook;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Formats long amounts for one currency code without NumberFormat or double math.
+ *
+ * Output matches the old NumberFormat (Locale.US) path in CurrencyUtil:
+ * symbol, space, optional '-', comma-grouped integer part, and "." plus two digits for
+ * the decimal variants. Digits are written right to left into a char buffer owned by the
+ * instance, so the only allocation per call is the returned String.
+ *
+ * Minor amounts are split with integer math, so values beyond 2^53 (where the old double
+ * path lost precision) now print exactly.
+ */
+final class CurrencyFormatter {
+
+    // Sign + 19 digits + 6 separators + ".00" = 29 chars for any long.
+    private static final int MAX_NUMBER_CHARS = 29;
+
+    private static final Map<String, CurrencyFormatter> CACHE = new HashMap<>();
+
+    private final char[] prefix; // symbol + " "
+    private final char[] buf;
+
+    private CurrencyFormatter(String symbol) {
+        prefix = (symbol + " ").toCharArray();
+        // Room for a short lead ("+ " / "- ") in front of the prefix.
+        buf = new char[8 + prefix.length + MAX_NUMBER_CHARS];
+    }
+
+    /** Cached formatter for an upper-case currency code. */
+    static CurrencyFormatter forCode(String code) {
+        synchronized (CACHE) {
+            CurrencyFormatter f = CACHE.get(code);
+            if (f == null) {
+                f = new CurrencyFormatter(CurrencyUtil.symbolFor(code));
+                CACHE.put(code, f);
+            }
+            return f;
+        }
+    }
+
+    /** Whole units, grouped, no decimals: 720000 -> "৳ 720,000". */
+    String formatMajor(String lead, long amountMajor) {
+        return format(lead, amountMajor, false, false);
+    }
+
+    /** Whole units with ".00": 720000 -> "৳ 720,000.00". */
+    String formatMajorWithDecimals(String lead, long amountMajor) {
+        return format(lead, amountMajor, true, false);
+    }
+
+    /** Minor units (1/100) as major with two decimals: 123456 -> "৳ 1,234.56". */
+    String formatMinor(String lead, long amountMinor) {
+        return format(lead, amountMinor, true, true);
+    }
+
+    /*
+     * Works on the negated magnitude (v <= 0) so Long.MIN_VALUE needs no special case.
+     * lead is written before the symbol (may be null); longer than the spare 8 chars it is concatenated.
+     */
+    private synchronized String format(String lead, long amount, boolean decimals, boolean minor) {
+        int pos = buf.length;
+        long v = amount < 0 ? amount : -amount;
+
+        if (decimals) {
+            if (minor) {
+                buf[--pos] = (char) ('0' - (int) (v % 10));
+                v /= 10;
+                buf[--pos] = (char) ('0' - (int) (v % 10));
+                v /= 10;
+            } else {
+                buf[--pos] = '0';
+                buf[--pos] = '0';
+            }
+            buf[--pos] = '.';
+        }
+
+        int digits = 0;
+        do {
+            if (digits > 0 && digits % 3 == 0) buf[--pos] = ',';
+            buf[--pos] = (char) ('0' - (int) (v % 10));
+            v /= 10;
+            digits++;
+        } while (v != 0);
+
+        if (amount < 0) buf[--pos] = '-';
+
+        pos -= prefix.length;
+        System.arraycopy(prefix, 0, buf, pos, prefix.length);
+
+        if (lead != null) {
+            int n = lead.length();
+            if (n > pos) return lead + new String(buf, pos, buf.length - pos);
+            pos -= n;
+            lead.getChars(0, n, buf, pos);
+        }
+        return new String(buf, pos, buf.length - pos);
+    }
+}
@@ -1,6 +1,5 @@
 package com.moneytrackultra.cashbook;
 
-import java.text.NumberFormat;
 import java.util.Locale;
 
 /**
@@ -10,16 +9,25 @@ import java.util.Locale;
  * and "minor" units (amountMinor = amountInMajor * 100) if you need cents/paisa later.
  *
  * Current default currency code (change with setCode or extend with preference storage).
+ * Formatting goes through a CurrencyFormatter cached per code (no NumberFormat per call).
  */
 public class CurrencyUtil {
 
     private static String code = "BDT"; // default; change or persist if needed
+    private static volatile CurrencyFormatter formatter = CurrencyFormatter.forCode(code);
 
     public static void setCode(String c) {
-        if (c != null && !c.trim().isEmpty()) code = c.toUpperCase(Locale.US);
+        if (c != null && !c.trim().isEmpty()) {
+            code = c.toUpperCase(Locale.US);
+            formatter = CurrencyFormatter.forCode(code);
+        }
     }
 
     public static String symbol() {
+        return symbolFor(code);
+    }
+
+    static String symbolFor(String code) {
         switch (code) {
             case "USD": return "$";
             case "EUR": return "€";
@@ -38,21 +46,19 @@ public class CurrencyUtil {
      * Example: 720000 -> ৳ 720,000
      */
     public static String formatMajor(long amountMajor) {
-        NumberFormat nf = NumberFormat.getNumberInstance(Locale.US);
-        nf.setGroupingUsed(true);
-        nf.setMaximumFractionDigits(0);
-        return symbol() + " " + nf.format(amountMajor);
+        return formatter.formatMajor(null, amountMajor);
+    }
+
+    /** formatMajor with a lead such as "+ " / "- " in front of the symbol. */
+    public static String formatMajor(String lead, long amountMajor) {
+        return formatter.formatMajor(lead, amountMajor);
     }
 
     /**
      * Same as formatMajor but always prints two decimals (720000 -> ৳ 720,000.00).
      */
     public static String formatMajorWithDecimals(long amountMajor) {
-        NumberFormat nf = NumberFormat.getNumberInstance(Locale.US);
-        nf.setGroupingUsed(true);
-        nf.setMinimumFractionDigits(2);
-        nf.setMaximumFractionDigits(2);
-        return symbol() + " " + nf.format(amountMajor);
+        return formatter.formatMajorWithDecimals(null, amountMajor);
     }
 
     /* ========= MINOR UNIT FORMATTER (if you store cents/paisa) ========= */
@@ -62,12 +68,12 @@ public class CurrencyUtil {
      * 123456 (cents) -> 1234.56 major units
      */
     public static String formatMinor(long amountMinor) {
-        double major = amountMinor / 100.0;
-        NumberFormat nf = NumberFormat.getNumberInstance(Locale.US);
-        nf.setGroupingUsed(true);
-        nf.setMinimumFractionDigits(2);
-        nf.setMaximumFractionDigits(2);
-        return symbol() + " " + nf.format(major);
+        return formatter.formatMinor(null, amountMinor);
+    }
+
+    /** formatMinor with a lead such as "+ " / "- " in front of the symbol. */
+    public static String formatMinor(String lead, long amountMinor) {
+        return formatter.formatMinor(lead, amountMinor);
     }
 
     /* ========= BACKWARD COMPATIBILITY ========= */
@@ -80,4 +86,9 @@ public class CurrencyUtil {
         // If you REALLY want to keep the old "Rp." prefix always, you could special-case here.
         return formatMajor(amountMajor);
     }
+
+    /** rupiah with a lead such as "+ " / "- " in front of the symbol. */
+    public static String rupiah(String lead, long amountMajor) {
+        return formatMajor(lead, amountMajor);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,161 @@
+package com.moneytrackultra.cashbook;
+
+import java.util.List;
+
+/**
+ * Fenwick (binary indexed) trees of income and expense per Transaction.epochDay, in minor units.
+ *
+ * Answers "total between two dates" and "balance as of a date" in O(log days) and takes
+ * O(log days) per insert / delete. Slot 1 is baseDay, the earliest day seen; the trees double
+ * when a later day does not fit and are rebuilt around a new base when an earlier day
+ * arrives (rare: only for entries backdated before all existing history).
+ *
+ * In-memory only. PrefsManager builds it lazily from the cached snapshot.
+ */
+final class DailyBalanceIndex implements LedgerIndex {
+
+    private static final int MIN_CAPACITY = 64;
+
+    private boolean loaded;
+
+    private long baseDay;
+    private long[] income = new long[MIN_CAPACITY + 1]; // 1-based
+    private long[] expense = new long[MIN_CAPACITY + 1];
+
+    synchronized boolean isCurrent() {
+        return loaded;
+    }
+
+    /* ---------- LedgerIndex ---------- */
+
+    @Override
+    public synchronized void onInserted(Transaction t) {
+        if (loaded) add(t, 1);
+    }
+
+    @Override
+    public synchronized void onDeleted(Transaction t) {
+        if (loaded) add(t, -1);
+    }
+
+    @Override
+    public synchronized void rebuild(List<Transaction> all) {
+        loaded = true;
+
+        long min = Long.MAX_VALUE, max = Long.MIN_VALUE;
+        if (all != null) {
+            for (Transaction t : all) {
+                if (t == null) continue;
+                long d = t.epochDay;
+                if (d < min) min = d;
+                if (d > max) max = d;
+            }
+        }
+        if (min == Long.MAX_VALUE) {
+            baseDay = EpochDays.today();
+            income = new long[MIN_CAPACITY + 1];
+            expense = new long[MIN_CAPACITY + 1];
+            return;
+        }
+
+        // Accumulate per-day values, then build both trees in O(days).
+        baseDay = min;
+        int cap = capacityFor(max - min + 1);
+        long[] inc = new long[cap + 1];
+        long[] exp = new long[cap + 1];
+        for (Transaction t : all) {
+            if (t == null) continue;
+            int i = (int) (t.epochDay - baseDay) + 1;
+            if (t.type == TransactionType.INCOME) inc[i] += t.getAmountMinor();
+            else exp[i] += t.getAmountMinor();
+        }
+        income = build(inc);
+        expense = build(exp);
+    }
+
+    @Override
+    public boolean needsRebuild() {
+        return false; // built on first read instead of at startup
+    }
+
+    /* ---------- Queries ---------- */
+
+    /** Sum of one type over local days fromDay..toDay (inclusive). */
+    synchronized long sum(TransactionType type, long fromDay, long toDay) {
+        if (toDay < fromDay) return 0;
+        long[] tree = type == TransactionType.INCOME ? income : expense;
+        return prefix(tree, toDay) - prefix(tree, fromDay - 1);
+    }
+
+    /** Income minus expense over every day up to and including {@code day}. */
+    synchronized long balanceAsOf(long day) {
+        return prefix(income, day) - prefix(expense, day);
+    }
+
+    private long prefix(long[] tree, long day) {
+        long offset = day - baseDay + 1;
+        if (offset <= 0) return 0;
+        int i = (int) Math.min(offset, tree.length - 1);
+        long s = 0;
+        for (; i > 0; i -= i & -i) s += tree[i];
+        return s;
+    }
+
+    /* ---------- Maintenance ---------- */
+
+    private void add(Transaction t, int sign) {
+        if (t == null) return;
+        long day = t.epochDay;
+        if (day < baseDay) {
+            rebase(day);
+        } else if (day - baseDay + 1 > income.length - 1) {
+            grow(day - baseDay + 1);
+        }
+        int i = (int) (day - baseDay) + 1;
+        long amt = sign * t.getAmountMinor();
+        long[] tree = t.type == TransactionType.INCOME ? income : expense;
+        for (; i < tree.length; i += i & -i) tree[i] += amt;
+    }
+
+    // Moves the base back to newBase, keeping every stored day.
+    private void rebase(long newBase) {
+        long shift = baseDay - newBase;
+        int cap = capacityFor(income.length - 1 + shift);
+        income = shifted(income, (int) shift, cap);
+        expense = shifted(expense, (int) shift, cap);
+        baseDay = newBase;
+    }
+
+    private void grow(long needed) {
+        int cap = capacityFor(needed);
+        income = shifted(income, 0, cap);
+        expense = shifted(expense, 0, cap);
+    }
+
+    private static long[] shifted(long[] tree, int shift, int cap) {
+        long[] values = new long[cap + 1];
+        long prev = 0;
+        for (int i = 1; i < tree.length; i++) {
+            long p = 0;
+            for (int j = i; j > 0; j -= j & -j) p += tree[j];
+            values[i + shift] = p - prev;
+            prev = p;
+        }
+        return build(values);
+    }
+
+    // Linear-time Fenwick construction from 1-based point values (in place).
+    private static long[] build(long[] values) {
+        for (int i = 1; i < values.length; i++) {
+            int parent = i + (i & -i);
+            if (parent < values.length) values[parent] += values[i];
+        }
+        return values;
+    }
+
+    private static int capacityFor(long days) {
+        int cap = MIN_CAPACITY;
+        while (cap < days) cap <<= 1;
+        return cap;
+    }
+}
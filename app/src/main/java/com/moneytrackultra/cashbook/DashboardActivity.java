@@ -1,26 +1,22 @@
 package com.moneytrackultra.cashbook;
 
 import android.app.DatePickerDialog;
-import android.content.BroadcastReceiver;
-import android.content.Context;
 import android.content.Intent;
-import android.content.IntentFilter;
 import android.graphics.Color;
 import android.os.Bundle;
 import android.text.InputType;
 import android.view.View;
+import android.view.ViewTreeObserver;
 import android.widget.DatePicker;
 import android.widget.EditText;
 import android.widget.ImageButton;
 import android.widget.LinearLayout;
 import android.widget.TextView;
-import android.os.Build;
-import android.content.Context;
-import android.content.IntentFilter;
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.ActionBarDrawerToggle;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.view.GravityCompat;
+import androidx.core.widget.NestedScrollView;
 import androidx.drawerlayout.widget.DrawerLayout;
 import androidx.recyclerview.widget.LinearLayoutManager;
 
@@ -48,7 +44,8 @@ import java.util.Locale;
  *  - Add Income / Expense with date picker (no future dates)
  *  - Drawer navigation
  *  - Real-time chart + balance summary
- *  - Responds instantly to data clear broadcasts (from ProfileActivity)
+ *  - Patches list, totals and chart from OfflineRepository change events
+ *  - Recent list read in keyset pages as the page scrolls (TransactionPager)
  */
 public class DashboardActivity extends AppCompatActivity implements NavigationView.OnNavigationItemSelectedListener {
 
@@ -64,20 +61,23 @@ public class DashboardActivity extends AppCompatActivity implements NavigationVi
     private LineChart lineChart;
     private Chip chipDay, chipWeek, chipMonth;
 
+    private NestedScrollView scroll;
     private androidx.recyclerview.widget.RecyclerView rvTransactions;
     private RecentTransactionAdapter adapter;
+    private TransactionPager pager; // recent list: a window of keyset pages, see onListScrolled
 
     private PrefsManager prefs;
+    private final OfflineRepository repo = OfflineRepository.get();
 
     private final SimpleDateFormat displayDateFmt =
             new SimpleDateFormat("EEEE, dd MMMM yyyy", Locale.getDefault());
 
-    /* ---- Broadcast receiver for domain data cleared (ProfileActivity) ---- */
-    private final BroadcastReceiver dataClearedReceiver = new BroadcastReceiver() {
-        @Override public void onReceive(Context c, Intent i) {
-            refreshAll();
-        }
-    };
+    /* ---- Repository changes (inserts, deletes, clear from ProfileActivity) ---- */
+    private final OfflineRepository.Observer changeObserver = this::onRepositoryChanged;
+    private boolean loaded; // summary / chart hold a full load; later changes are patched in
+    // Delivered by the first load and kept: PrefsManager updates it in place on every write,
+    // so the main thread never has to take the PrefsManager lock to draw the chart.
+    private TimeRollups rollups;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -93,35 +93,51 @@ public class DashboardActivity extends AppCompatActivity implements NavigationVi
         setupChart();
         setupChips();
         setupButtons();
-        refreshAll();
+        repo.addObserver(changeObserver);
+        // First load happens in onResume.
     }
 
-    /* ---------------- Lifecycle to manage receiver & refresh ---------------- */
+    /* ---------------- Lifecycle to manage observer & refresh ---------------- */
 
     @Override
-    protected void onStart() {
-        super.onStart();
-        IntentFilter filter = new IntentFilter(ProfileActivity.ACTION_DOMAIN_DATA_CLEARED);
-        if (Build.VERSION.SDK_INT >= 33) { // Build.VERSION_CODES.TIRAMISU
-            registerReceiver(dataClearedReceiver, filter, Context.RECEIVER_NOT_EXPORTED);
-        } else {
-            registerReceiver(dataClearedReceiver, filter);
-        }
+    protected void onStop() {
+        super.onStop();
+        repo.cancel(this);
     }
 
     @Override
-    protected void onStop() {
-        super.onStop();
-        try {
-            unregisterReceiver(dataClearedReceiver);
-        } catch (Exception ignored) {}
+    protected void onDestroy() {
+        super.onDestroy();
+        repo.removeObserver(changeObserver);
     }
 
     @Override
     protected void onResume() {
         super.onResume();
-        // Ensure always-current (in case data changed in background)
-        refreshAll();
+        if (!loaded) {
+            refreshAll();
+        } else {
+            renderChart(); // hour / day buckets move with the clock
+        }
+    }
+
+    private void onRepositoryChanged(RepositoryChange c) {
+        if (!loaded) return; // the pending full load will include it
+        switch (c.kind) {
+            case INSERTED:
+            case DELETED:
+                pager.apply(c);
+                break;
+            case CLEARED:
+            case RELOADED:
+                refreshAll();
+                return;
+            default:
+                return;
+        }
+        // Totals and rollups were already updated by PrefsManager.
+        updateSummary();
+        renderChart();
     }
 
     /* ---------------- Initialization ---------------- */
@@ -136,6 +152,7 @@ public class DashboardActivity extends AppCompatActivity implements NavigationVi
         chipDay           = findViewById(R.id.chipDay);
         chipWeek          = findViewById(R.id.chipWeek);
         chipMonth         = findViewById(R.id.chipMonth);
+        scroll            = findViewById(R.id.scroll);
         rvTransactions    = findViewById(R.id.rvTransactions);
         btnAddIncome      = findViewById(R.id.btnAddIncome);
         btnAddExpense     = findViewById(R.id.btnAddExpense);
@@ -160,11 +177,60 @@ public class DashboardActivity extends AppCompatActivity implements NavigationVi
 
     private void setupRecycler() {
         rvTransactions.setLayoutManager(new LinearLayoutManager(this));
-        adapter = new RecentTransactionAdapter(prefs.getTransactions(), t -> {
-            prefs.deleteTransaction(t.id);
-            refreshAll();
-        });
+        adapter = new RecentTransactionAdapter(new ArrayList<>(), t ->
+                repo.write(this, r -> {
+                    r.deleteTransaction(t.id);
+                    return null;
+                }, null)); // the DELETED event updates the screen
         rvTransactions.setAdapter(adapter);
+
+        pager = new TransactionPager(repo, this, this::showWindow);
+        // The list lays out inside the page's NestedScrollView, so paging follows that scroll.
+        scroll.setOnScrollChangeListener(
+                (NestedScrollView.OnScrollChangeListener) (v, x, y, oldX, oldY) -> onListScrolled());
+    }
+
+    // Loads the next page once the window's edge is within one screen of the viewport.
+    private void onListScrolled() {
+        int listTop = offsetInScroll(rvTransactions);
+        int listBottom = listTop + rvTransactions.getHeight();
+        int viewTop = scroll.getScrollY();
+        int viewBottom = viewTop + scroll.getHeight();
+        int prefetch = scroll.getHeight();
+        if (listBottom - viewBottom < prefetch) pager.loadOlder();
+        if (viewTop - listTop < prefetch) pager.loadNewer();
+    }
+
+    private void showWindow(List<Transaction> rows, int shiftAbove) {
+        androidx.recyclerview.widget.RecyclerView.LayoutManager lm = rvTransactions.getLayoutManager();
+        // First row kept from the old window: its position before and after the change.
+        int oldPos = Math.max(0, -shiftAbove);
+        int newPos = Math.max(0, shiftAbove);
+        View anchor = shiftAbove == 0 || lm == null ? null : lm.findViewByPosition(oldPos);
+        if (anchor == null || scroll.getScrollY() <= offsetInScroll(rvTransactions)) {
+            adapter.submit(rows, null);
+            return;
+        }
+        // Rows above the viewport were added / dropped: the anchor moves by exactly their height
+        // (rows added or dropped below it do not count), so scroll by its move.
+        int before = anchor.getTop();
+        adapter.submit(rows, () -> rvTransactions.getViewTreeObserver().addOnPreDrawListener(
+                new ViewTreeObserver.OnPreDrawListener() {
+                    @Override public boolean onPreDraw() {
+                        rvTransactions.getViewTreeObserver().removeOnPreDrawListener(this);
+                        View moved = lm.findViewByPosition(newPos);
+                        if (moved != null) scroll.scrollBy(0, moved.getTop() - before);
+                        return true;
+                    }
+                }));
+    }
+
+    private int offsetInScroll(View v) {
+        int top = 0;
+        for (View cur = v; cur != null && cur != scroll; cur = (View) cur.getParent()) {
+            top += cur.getTop();
+        }
+        return top;
     }
 
     private void setupChart() {
@@ -298,26 +364,22 @@ public class DashboardActivity extends AppCompatActivity implements NavigationVi
                 chosenRef.set(Calendar.MILLISECOND, 0);
             }
 
-            prefs.addTransaction(type, amount, title, null, dateString);
-
-            // Adjust epoch if user picked a past date.
-            List<Transaction> current = prefs.getTransactions();
-            if (!current.isEmpty()) {
-                Transaction newest = current.get(0);
-                if (!isSameDay(chosenCal, nowCal)) {
-                    newest.epochMillis = chosenRef.getTimeInMillis();
-                    prefs.replaceTransactions(current);
-                }
-            }
-
-            refreshAll();
-            rvTransactions.post(() -> rvTransactions.smoothScrollToPosition(0));
+            long epoch = isSameDay(chosenRef, nowCal)
+                    ? System.currentTimeMillis()
+                    : chosenRef.getTimeInMillis();
+            saveEntry(type, amount, title, dateString, epoch);
         });
 
         b.setNegativeButton("Cancel", null);
         b.show();
     }
 
+    private void saveEntry(TransactionType type, double amount, String title, String dateString, long epoch) {
+        // The INSERTED event adds the row; scroll once it is there.
+        repo.write(this, r -> r.insertTransaction(type, amount, title, null, dateString, epoch),
+                t -> rvTransactions.post(() -> rvTransactions.smoothScrollToPosition(0)));
+    }
+
     private void openDatePicker(Calendar chosenCal, TextView tvDateValue) {
         Calendar today = Calendar.getInstance();
         DatePickerDialog dlg = new DatePickerDialog(
@@ -348,33 +410,35 @@ public class DashboardActivity extends AppCompatActivity implements NavigationVi
     /* ---------------- Summary & List ---------------- */
 
     private void refreshAll() {
+        loaded = false; // changes until the result arrives are part of it
+        pager.refresh();
+        repo.load(this, DashboardActivity::loadState, this::showAll);
+    }
+
+    // Repository thread: builds the chart rollups if needed.
+    private static TimeRollups loadState(OfflineRepository r) {
+        return r.getTimeRollups();
+    }
+
+    private void showAll(TimeRollups rollups) {
+        this.rollups = rollups;
+        loaded = true;
         updateSummary();
-        updateList();
         renderChart();
     }
 
     private void updateSummary() {
-        long income = 0;
-        long expense = 0;
-        for (Transaction t : prefs.getTransactions()) {
-            if (t.type == TransactionType.INCOME) income += t.getAmountMinor();
-            else expense +=  t.getAmountMinor();;
-        }
-        long balance = income - expense;
-        tvBalanceAmount.setText(CurrencyUtil.formatMinor(balance));
-        tvStatLeftValue.setText(CurrencyUtil.formatMinor(expense));
-        tvStatRightValue.setText(CurrencyUtil.formatMinor(income));
-    }
-
-    private void updateList() {
-        adapter.submit(prefs.getTransactions());
+        LedgerTotals totals = prefs.getLedgerTotals();
+        tvBalanceAmount.setText(CurrencyUtil.formatMinor(totals.balanceMinor()));
+        tvStatLeftValue.setText(CurrencyUtil.formatMinor(totals.expenseMinor));
+        tvStatRightValue.setText(CurrencyUtil.formatMinor(totals.incomeMinor));
     }
 
     /* ---------------- Chart Rendering ---------------- */
 
     private void renderChart() {
-        List<Transaction> all = prefs.getTransactions();
-        if (all.isEmpty()) {
+        if (rollups == null) return; // showAll renders once the rollups are built
+        if (prefs.getLedgerTotals().count == 0) {
             lineChart.clear();
             lineChart.setNoDataText("Add transactions to see your chart");
             lineChart.invalidate();
@@ -385,35 +449,25 @@ public class DashboardActivity extends AppCompatActivity implements NavigationVi
         boolean week = chipWeek.isChecked();
         // if neither day nor week -> month
 
-        long now = System.currentTimeMillis();
-        long unit;
         int buckets;
         boolean hourly = false;
 
         if (day) {
-            buckets = 24; // 24 hours
-            unit = 60L * 60L * 1000L;
+            buckets = 24; // last 24 hours
             hourly = true;
         } else if (week) {
-            buckets = 7;  // 7 days
-            unit = 24L * 60L * 60L * 1000L;
+            buckets = 7;  // last 7 days
         } else {
-            buckets = 30; // 30 days
-            unit = 24L * 60L * 60L * 1000L;
+            buckets = 30; // last 30 days
         }
 
-        long start = now - (buckets - 1L) * unit;
-
         long[] incBuckets = new long[buckets];
         long[] expBuckets = new long[buckets];
 
-        for (Transaction t : all) {
-            if (t.epochMillis < start) continue;
-            int idx = (int) ((t.epochMillis - start) / unit);
-            if (idx < 0 || idx >= buckets) continue;
-            if (t.type == TransactionType.INCOME) incBuckets[idx] += t.getAmountMinor();
-            else expBuckets[idx] += t.getAmountMinor();
-        }
+        // Precomputed cells, oldest first, ending with the current hour / today.
+        long now = System.currentTimeMillis();
+        if (hourly) rollups.hourly(now, incBuckets, expBuckets);
+        else rollups.daily(now, incBuckets, expBuckets);
 
         List<Entry> incEntries = new ArrayList<>();
         List<Entry> expEntries = new ArrayList<>();
@@ -0,0 +1,123 @@
+package com.moneytrackultra.cashbook;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Shared date labels for list rows, cached per epoch day.
+ *
+ * Each day is formatted once and kept in a small LRU (MAX_DAYS entries per style), so binding
+ * rows while scrolling is a map lookup instead of a Date + SimpleDateFormat call. Day + time
+ * labels reuse the cached day part and write HH:mm from the offset inside that day.
+ *
+ * Formatters, zone and cached labels depend on the default locale / zone: App calls reset()
+ * when either changes.
+ */
+final class DateLabels {
+
+    private static final int MAX_DAYS = 512;
+    private static final long DAY_MS = 24L * 60 * 60 * 1000;
+
+    private static final DateLabels INSTANCE = new DateLabels();
+
+    static DateLabels get() { return INSTANCE; }
+
+    /** One cached day for dayTime(): "dd MMM yyyy " and its [start, end) in millis. */
+    private static final class Day {
+        final char[] label;
+        final long start;
+        final long end;
+
+        Day(char[] label, long start, long end) {
+            this.label = label;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    private ZoneId zone;
+    private DateTimeFormatter shortDayFmt; // "d MMM yyyy", default locale
+    private final DateTimeFormatter dayTimeFmt = DateTimeFormatter.ofPattern("dd MMM yyyy ", Locale.US);
+
+    private final Map<Integer, String> shortDays = lru();
+    private final Map<Integer, Day> dayTimes = lru();
+    private final char[] buf = new char[64];
+
+    private DateLabels() {
+        reset();
+    }
+
+    /** Re-reads the default zone and locale and drops all cached labels. */
+    synchronized void reset() {
+        zone = ZoneId.systemDefault();
+        shortDayFmt = DateTimeFormatter.ofPattern("d MMM yyyy", Locale.getDefault());
+        shortDays.clear();
+        dayTimes.clear();
+    }
+
+    /** "d MMM yyyy" in the default locale, e.g. "5 Mar 2026". */
+    synchronized String shortDay(int epochDay) {
+        String s = shortDays.get(epochDay);
+        if (s == null) {
+            s = shortDayFmt.format(LocalDate.ofEpochDay(epochDay));
+            shortDays.put(epochDay, s);
+        }
+        return s;
+    }
+
+    /**
+     * "dd MMM yyyy HH:mm" (Locale.US) of a timestamp in the device zone. {@code epochDayHint}
+     * (normally Transaction.epochDay) is tried first; the day is recomputed if it does not
+     * contain the timestamp.
+     */
+    synchronized String dayTime(long epochMillis, int epochDayHint) {
+        Day d = day(epochDayHint);
+        if (epochMillis < d.start || epochMillis >= d.end) {
+            d = day(EpochDays.of(epochMillis));
+        }
+
+        int minutes;
+        if (d.end - d.start == DAY_MS) {
+            minutes = (int) ((epochMillis - d.start) / 60_000L);
+        } else {
+            // DST switch day: offsets within the day differ, let java.time place it.
+            minutes = Instant.ofEpochMilli(epochMillis).atZone(zone).toLocalTime().toSecondOfDay() / 60;
+        }
+
+        int n = d.label.length;
+        System.arraycopy(d.label, 0, buf, 0, n);
+        int h = minutes / 60, m = minutes % 60;
+        buf[n++] = (char) ('0' + h / 10);
+        buf[n++] = (char) ('0' + h % 10);
+        buf[n++] = ':';
+        buf[n++] = (char) ('0' + m / 10);
+        buf[n++] = (char) ('0' + m % 10);
+        return new String(buf, 0, n);
+    }
+
+    private Day day(int epochDay) {
+        Day d = dayTimes.get(epochDay);
+        if (d == null) {
+            LocalDate date = LocalDate.ofEpochDay(epochDay);
+            d = new Day(dayTimeFmt.format(date).toCharArray(),
+                    date.atStartOfDay(zone).toInstant().toEpochMilli(),
+                    date.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli());
+            dayTimes.put(epochDay, d);
+        }
+        return d;
+    }
+
+    private static <V> Map<Integer, V> lru() {
+        return new LinkedHashMap<Integer, V>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, V> eldest) {
+                return size() > MAX_DAYS;
+            }
+        };
+    }
+}
@@ -0,0 +1,64 @@
+package com.moneytrackultra.cashbook;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Locale;
+
+/**
+ * Canonical calendar day of a transaction: LocalDate.toEpochDay() in the zone the entry was
+ * written in. Stored on Transaction.epochDay so grouping never re-parses strings or depends
+ * on the current zone.
+ */
+public final class EpochDays {
+    private EpochDays(){}
+
+    /** Epoch day of a timestamp in the device zone. */
+    public static int of(long epochMillis) {
+        return (int) Instant.ofEpochMilli(epochMillis).atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay();
+    }
+
+    public static int today() {
+        return of(System.currentTimeMillis());
+    }
+
+    public static LocalDate toLocalDate(int epochDay) {
+        return LocalDate.ofEpochDay(epochDay);
+    }
+
+    /**
+     * One-off resolution for data written before epochDay existed: the display date string
+     * the user picked (any format older builds used) wins, otherwise epochMillis.
+     *
+     * Holds one SimpleDateFormat per legacy pattern, built once and reused for every row of a
+     * migration. Not thread-safe; create one per pass.
+     */
+    static final class LegacyDays {
+        private final SimpleDateFormat[] formats = new SimpleDateFormat[LEGACY_DATE_PATTERNS.length];
+
+        LegacyDays() {
+            Locale locale = Locale.getDefault();
+            for (int i = 0; i < formats.length; i++) {
+                formats[i] = new SimpleDateFormat(LEGACY_DATE_PATTERNS[i], locale);
+            }
+        }
+
+        int epochDay(String date, long epochMillis) {
+            if (date != null && !date.trim().isEmpty()) {
+                String s = date.trim();
+                for (SimpleDateFormat f : formats) {
+                    try {
+                        return of(f.parse(s).getTime());
+                    } catch (ParseException ignored) {}
+                }
+            }
+            return of(epochMillis);
+        }
+    }
+
+    private static final String[] LEGACY_DATE_PATTERNS = {
+            "EEEE, dd MMMM yyyy", "d MMM yyyy", "dd MMM yyyy", "dd/MM/yyyy", "yyyy-MM-dd"
+    };
+}
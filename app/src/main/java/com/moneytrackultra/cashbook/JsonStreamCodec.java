@@ -0,0 +1,299 @@
+package com.moneytrackultra.cashbook;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Token-level JSON codec for the arrays stored in SharedPreferences.
+ *
+ * Decoding walks the text once with JsonReader and builds models directly (no JSONArray /
+ * JSONObject DOM). Encoding appends straight into one StringBuilder and produces exactly
+ * what org.json's JSONArray.toString() produced for the same data (key order, escaping
+ * and omitted null fields), so stored values stay byte-for-byte compatible.
+ */
+final class JsonStreamCodec {
+    private JsonStreamCodec(){}
+
+    /* ---------- Transactions (legacy transactions_json) ---------- */
+
+    static List<Transaction> readTransactions(String raw) {
+        List<Transaction> out = new ArrayList<>();
+        if (raw == null) return out;
+        try (JsonReader r = new JsonReader(new StringReader(raw))) {
+            r.beginArray();
+            while (r.hasNext()) {
+                if (skipIfNotObject(r)) continue;
+                long id = 0, epochMillis = 0, amountMinor = 0, amount = 0;
+                boolean hasMinor = false, hasAmount = false;
+                TransactionType type = TransactionType.EXPENSE;
+                String title = "", source = null, date = null;
+
+                r.beginObject();
+                while (r.hasNext()) {
+                    switch (r.nextName()) {
+                        case "id":          id = nextLong(r, 0); break;
+                        case "type":        type = nextType(r); break;
+                        case "amountMinor": amountMinor = nextLong(r, 0); hasMinor = true; break;
+                        case "amount":      amount = nextLong(r, 0); hasAmount = true; break;
+                        case "epochMillis": epochMillis = nextLong(r, 0); break;
+                        case "title":       title = nextString(r, ""); break;
+                        case "source":      source = nextString(r, null); break;
+                        case "date":        date = nextString(r, null); break;
+                        default:            r.skipValue(); break;
+                    }
+                }
+                r.endObject();
+
+                if (!hasMinor) amountMinor = hasAmount ? amount * 100 : 0;
+                Transaction t = new Transaction(id, type, amountMinor, epochMillis, title, source, date);
+                t.amount = hasAmount ? amount : amountMinor / 100;
+                out.add(t);
+            }
+            r.endArray();
+        } catch (Exception e) { e.printStackTrace(); }
+        return out;
+    }
+
+    /* ---------- Wallets ---------- */
+
+    static List<Wallet> readWallets(String raw) {
+        List<Wallet> out = new ArrayList<>();
+        if (raw == null) return out;
+        try (JsonReader r = new JsonReader(new StringReader(raw))) {
+            r.beginArray();
+            while (r.hasNext()) {
+                if (skipIfNotObject(r)) continue;
+                Wallet w = new Wallet();
+                w.name = "Wallet";
+                r.beginObject();
+                while (r.hasNext()) {
+                    switch (r.nextName()) {
+                        case "id":           w.id = nextLong(r, 0); break;
+                        case "name":         w.name = nextString(r, "Wallet"); break;
+                        case "balance":      w.balance = nextLong(r, 0); break;
+                        case "transactions": readWalletTransactions(r, w.transactions); break;
+                        default:             r.skipValue(); break;
+                    }
+                }
+                r.endObject();
+                out.add(w);
+            }
+            r.endArray();
+        } catch (Exception e) { e.printStackTrace(); }
+        return out;
+    }
+
+    private static void readWalletTransactions(JsonReader r, List<WalletTransaction> into) throws IOException {
+        if (r.peek() != JsonToken.BEGIN_ARRAY) { r.skipValue(); return; }
+        r.beginArray();
+        while (r.hasNext()) {
+            if (skipIfNotObject(r)) continue;
+            WalletTransaction wt = new WalletTransaction();
+            wt.note = "";
+            r.beginObject();
+            while (r.hasNext()) {
+                switch (r.nextName()) {
+                    case "id":          wt.id = nextLong(r, 0); break;
+                    case "amount":      wt.amount = nextLong(r, 0); break;
+                    case "note":        wt.note = nextString(r, ""); break;
+                    case "epochMillis": wt.epochMillis = nextLong(r, 0); break;
+                    case "title":       wt.title = nextString(r, null); break;
+                    case "source":      wt.source = nextString(r, null); break;
+                    case "date":        wt.date = nextString(r, null); break;
+                    default:            r.skipValue(); break;
+                }
+            }
+            r.endObject();
+            into.add(wt);
+        }
+        r.endArray();
+    }
+
+    static String writeWallets(List<Wallet> wallets) {
+        StringBuilder sb = new StringBuilder(256);
+        sb.append('[');
+        boolean firstWallet = true;
+        if (wallets != null) {
+            for (Wallet w : wallets) {
+                if (w == null) continue;
+                if (!firstWallet) sb.append(',');
+                firstWallet = false;
+                sb.append('{');
+                field(sb, true, "id", w.id);
+                field(sb, false, "name", w.name);
+                field(sb, false, "balance", w.balance);
+                if (w.transactions == null) { sb.append('}'); continue; }
+                sb.append(",\"transactions\":[");
+                boolean firstTx = true;
+                for (WalletTransaction wt : w.transactions) {
+                    if (wt == null) continue;
+                    if (!firstTx) sb.append(',');
+                    firstTx = false;
+                    sb.append('{');
+                    field(sb, true, "id", wt.id);
+                    field(sb, false, "amount", wt.amount);
+                    field(sb, false, "note", wt.note);
+                    field(sb, false, "epochMillis", wt.epochMillis);
+                    field(sb, false, "title", wt.title);
+                    field(sb, false, "source", wt.source);
+                    field(sb, false, "date", wt.date);
+                    sb.append('}');
+                }
+                sb.append("]}");
+            }
+        }
+        return sb.append(']').toString();
+    }
+
+    /* ---------- Buying Limits ---------- */
+
+    static List<BuyingLimit> readBuyingLimits(String raw) {
+        List<BuyingLimit> out = new ArrayList<>();
+        if (raw == null) return out;
+        try (JsonReader r = new JsonReader(new StringReader(raw))) {
+            r.beginArray();
+            while (r.hasNext()) {
+                if (skipIfNotObject(r)) continue;
+                BuyingLimit b = new BuyingLimit();
+                b.platform = "";
+                b.frequency = BuyingLimitFrequency.MONTHLY;
+                boolean hasCreated = false, hasPeriodStart = false;
+                r.beginObject();
+                while (r.hasNext()) {
+                    switch (r.nextName()) {
+                        case "platform":       b.platform = nextString(r, ""); break;
+                        case "limitAmount":    b.limitAmount = nextLong(r, 0); break;
+                        case "usedInPeriod":   b.usedInPeriod = nextLong(r, 0); break;
+                        case "createdAtEpoch": b.createdAtEpoch = nextLong(r, 0); hasCreated = true; break;
+                        case "periodStartMillis": b.periodStartMillis = nextLong(r, 0); hasPeriodStart = true; break;
+                        case "frequency":      b.frequency = nextFrequency(r); break;
+                        default:               r.skipValue(); break;
+                    }
+                }
+                r.endObject();
+                if (!hasCreated) b.createdAtEpoch = System.currentTimeMillis();
+                if (!hasPeriodStart) b.periodStartMillis = b.createdAtEpoch;
+                out.add(b);
+            }
+            r.endArray();
+        } catch (Exception e) { e.printStackTrace(); }
+        return out;
+    }
+
+    static String writeBuyingLimits(List<BuyingLimit> list) {
+        StringBuilder sb = new StringBuilder(64 + (list == null ? 0 : list.size() * 128));
+        sb.append('[');
+        boolean first = true;
+        if (list != null) {
+            for (BuyingLimit b : list) {
+                if (b == null) continue;
+                if (!first) sb.append(',');
+                first = false;
+                sb.append('{');
+                boolean none = !field(sb, true, "platform", b.platform);
+                field(sb, none, "limitAmount", b.limitAmount);
+                field(sb, false, "usedInPeriod", b.usedInPeriod);
+                field(sb, false, "frequency",
+                        b.frequency != null ? b.frequency.name() : BuyingLimitFrequency.MONTHLY.name());
+                field(sb, false, "createdAtEpoch", b.createdAtEpoch);
+                field(sb, false, "periodStartMillis", b.periodStartMillis);
+                sb.append('}');
+            }
+        }
+        return sb.append(']').toString();
+    }
+
+    /* ---------- Token helpers (mirror JSONObject.optXxx fallbacks) ---------- */
+
+    private static boolean skipIfNotObject(JsonReader r) throws IOException {
+        if (r.peek() == JsonToken.BEGIN_OBJECT) return false;
+        r.skipValue();
+        return true;
+    }
+
+    private static long nextLong(JsonReader r, long fallback) throws IOException {
+        JsonToken tok = r.peek();
+        if (tok != JsonToken.NUMBER && tok != JsonToken.STRING) {
+            r.skipValue();
+            return fallback;
+        }
+        String s = r.nextString();
+        try {
+            return Long.parseLong(s);
+        } catch (NumberFormatException notLong) {
+            try { return (long) Double.parseDouble(s); } catch (NumberFormatException e) { return fallback; }
+        }
+    }
+
+    private static String nextString(JsonReader r, String fallback) throws IOException {
+        switch (r.peek()) {
+            case STRING:
+            case NUMBER:  return r.nextString();
+            case BOOLEAN: return String.valueOf(r.nextBoolean());
+            default:      r.skipValue(); return fallback;
+        }
+    }
+
+    private static TransactionType nextType(JsonReader r) throws IOException {
+        String s = nextString(r, null);
+        try { return s == null ? TransactionType.EXPENSE : TransactionType.valueOf(s); }
+        catch (IllegalArgumentException e) { return TransactionType.EXPENSE; }
+    }
+
+    private static BuyingLimitFrequency nextFrequency(JsonReader r) throws IOException {
+        String s = nextString(r, null);
+        try { return s == null ? BuyingLimitFrequency.MONTHLY : BuyingLimitFrequency.valueOf(s); }
+        catch (IllegalArgumentException e) { return BuyingLimitFrequency.MONTHLY; }
+    }
+
+    /* ---------- Writer helpers (same output as org.json's JSONStringer) ---------- */
+
+    private static void field(StringBuilder sb, boolean first, String name, long value) {
+        if (!first) sb.append(',');
+        sb.append('"').append(name).append("\":").append(value);
+    }
+
+    /**
+     * Appends a string field; null values are skipped like JSONObject.put(name, null).
+     * @return true if something was written.
+     */
+    private static boolean field(StringBuilder sb, boolean first, String name, String value) {
+        if (value == null) return false;
+        if (!first) sb.append(',');
+        sb.append('"').append(name).append("\":");
+        quote(sb, value);
+        return true;
+    }
+
+    private static void quote(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int i = 0, n = s.length(); i < n; i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':
+                case '\\':
+                case '/':  sb.append('\\').append(c); break;
+                case '\t': sb.append("\\t"); break;
+                case '\b': sb.append("\\b"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\f': sb.append("\\f"); break;
+                default:
+                    if (c <= 0x1F) {
+                        sb.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xF]);
+                    } else {
+                        sb.append(c);
+                    }
+                    break;
+            }
+        }
+        sb.append('"');
+    }
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+}
@@ -0,0 +1,23 @@
+package com.moneytrackultra.cashbook;
+
+import java.util.List;
+
+/**
+ * A materialized view over the transaction store that PrefsManager keeps current.
+ *
+ * PrefsManager calls onInserted / onDeleted after each single-row store write and
+ * rebuild(...) after bulk changes (replace, clear, migration) or when a delete could not
+ * report the removed row. Implementations must not read the store themselves.
+ */
+interface LedgerIndex {
+
+    void onInserted(Transaction t);
+
+    void onDeleted(Transaction t);
+
+    /** Recomputes from scratch; {@code all} is every stored transaction, in no particular order. */
+    void rebuild(List<Transaction> all);
+
+    /** True when persisted state is missing or stale and a rebuild is required before use. */
+    boolean needsRebuild();
+}
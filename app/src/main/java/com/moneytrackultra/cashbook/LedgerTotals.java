@@ -0,0 +1,31 @@
+package com.moneytrackultra.cashbook;
+
+/**
+ * Running income / expense totals over all transactions (minor units), plus the row count.
+ *
+ * Immutable; obtained from OfflineRepository.getLedgerTotals() (or PrefsManager) without
+ * reading the transaction list. Kept current by LedgerTotalsIndex.
+ */
+public final class LedgerTotals {
+
+    public static final LedgerTotals EMPTY = new LedgerTotals(0, 0, 0);
+
+    public final long incomeMinor;
+    public final long expenseMinor;
+    public final long count;
+
+    public LedgerTotals(long incomeMinor, long expenseMinor, long count) {
+        this.incomeMinor = incomeMinor;
+        this.expenseMinor = expenseMinor;
+        this.count = count;
+    }
+
+    public long balanceMinor() {
+        return incomeMinor - expenseMinor;
+    }
+
+    /** Total for one side of the ledger. */
+    public long totalMinor(TransactionType type) {
+        return type == TransactionType.INCOME ? incomeMinor : expenseMinor;
+    }
+}
@@ -0,0 +1,66 @@
+package com.moneytrackultra.cashbook;
+
+import java.util.List;
+
+/**
+ * Maintains LedgerTotals in O(1) per insert / delete, in memory.
+ *
+ * Nothing is persisted here: when the store is opened PrefsManager seeds it from TransactionStore.ledgerTotals(),
+ * which the SQLite store answers from category_totals. That table changes in the same DB
+ * transaction as the rows, so a crash between a write and its totals cannot leave the header
+ * balance wrong. Startup still loads no transaction.
+ */
+class LedgerTotalsIndex implements LedgerIndex {
+
+    private LedgerTotals current = LedgerTotals.EMPTY;
+
+    synchronized void seed(LedgerTotals stored) {
+        set(stored == null ? LedgerTotals.EMPTY : stored);
+    }
+
+    synchronized LedgerTotals current() {
+        return current;
+    }
+
+    @Override
+    public synchronized void onInserted(Transaction t) {
+        apply(t, 1);
+    }
+
+    @Override
+    public synchronized void onDeleted(Transaction t) {
+        apply(t, -1);
+    }
+
+    @Override
+    public synchronized void rebuild(List<Transaction> all) {
+        long income = 0, expense = 0, count = 0;
+        if (all != null) {
+            for (Transaction t : all) {
+                if (t == null) continue;
+                if (t.type == TransactionType.INCOME) income += t.getAmountMinor();
+                else expense += t.getAmountMinor();
+                count++;
+            }
+        }
+        set(new LedgerTotals(income, expense, count));
+    }
+
+    @Override
+    public synchronized boolean needsRebuild() {
+        return false; // seeded from the store
+    }
+
+    private void apply(Transaction t, int sign) {
+        if (t == null) return;
+        LedgerTotals c = current;
+        long amt = sign * t.getAmountMinor();
+        set(t.type == TransactionType.INCOME
+                ? new LedgerTotals(c.incomeMinor + amt, c.expenseMinor, c.count + sign)
+                : new LedgerTotals(c.incomeMinor, c.expenseMinor + amt, c.count + sign));
+    }
+
+    private void set(LedgerTotals t) {
+        current = t;
+    }
+}
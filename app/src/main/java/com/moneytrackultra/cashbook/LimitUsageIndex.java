@@ -0,0 +1,196 @@
+package com.moneytrackultra.cashbook;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps BuyingLimit.usedInPeriod current for every platform limit.
+ *
+ * The counter is the limit's own usedInPeriod for the window
+ * [periodStartMillis, LimitUtil.periodEnd(frequency, periodStartMillis)), persisted with the
+ * limits. EXPENSE writes whose normalized source matches a limit adjust it in O(1); when the
+ * window has passed it is rolled forward (LimitUtil.rollForward) and recounted once with an
+ * indexed range sum. Amounts are absolute legacy major units, like limitAmount.
+ *
+ * Limits saved before this index existed carry whatever usedInPeriod they had on disk; the
+ * first load restarts each of them on the current calendar period and recounts it, once.
+ */
+final class LimitUsageIndex implements LedgerIndex {
+
+    private final PrefsManager prefs;
+    private final TransactionStore store;
+
+    // Normalized platform -> limit; loaded lazily, dropped when limits are saved elsewhere.
+    private Map<String, BuyingLimit> byPlatform;
+    private List<BuyingLimit> limits;
+
+    LimitUsageIndex(PrefsManager prefs, TransactionStore store) {
+        this.prefs = prefs;
+        this.store = store;
+    }
+
+    /**
+     * Key a platform is matched on: surrounding spaces dropped, ASCII letters folded to lower
+     * case. The same rule as SQLite's TRIM(source) = ? COLLATE NOCASE, which recount relies on.
+     */
+    static String normalize(String platform) {
+        if (platform == null) return "";
+        int start = 0, end = platform.length();
+        while (start < end && platform.charAt(start) == ' ') start++;
+        while (end > start && platform.charAt(end - 1) == ' ') end--;
+        StringBuilder sb = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            char c = platform.charAt(i);
+            sb.append(c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c);
+        }
+        return sb.toString();
+    }
+
+    /** Forget cached limits (they were saved by someone else). */
+    synchronized void invalidate() {
+        byPlatform = null;
+        limits = null;
+    }
+
+    /**
+     * Usage in the current period for a platform, or 0 when it has no limit.
+     * Rolls the period forward first if it has ended.
+     */
+    synchronized long usedInPeriod(String platform) {
+        BuyingLimit b = limits().get(normalize(platform));
+        if (b == null) return 0;
+        if (LimitUtil.rollForward(b, System.currentTimeMillis())) {
+            recount(b);
+            save();
+        }
+        return b.usedInPeriod;
+    }
+
+    /**
+     * Creates or edits a platform's limit. Only the amount and frequency come from the caller;
+     * usedInPeriod and the period stay with the index, and are restarted when the limit is new
+     * or its frequency changed.
+     */
+    synchronized void setLimit(String platform, long limitAmount, BuyingLimitFrequency frequency) {
+        Map<String, BuyingLimit> map = limits();
+        String key = normalize(platform);
+        BuyingLimit b = map.get(key);
+        if (b == null) {
+            b = new BuyingLimit(platform.trim(), limitAmount, frequency, 0, System.currentTimeMillis());
+            limits.add(b);
+            map.put(key, b);
+            resetPeriod(b);
+        } else {
+            b.limitAmount = limitAmount;
+            if (b.frequency != frequency) {
+                b.frequency = frequency;
+                resetPeriod(b);
+            }
+        }
+        save();
+    }
+
+    /**
+     * Called when a limit was created or its frequency changed: starts a fresh calendar period
+     * and counts what already falls into it.
+     */
+    synchronized void resetPeriod(BuyingLimit limit) {
+        limit.periodStartMillis = LimitUtil.newPeriodStart(limit.frequency);
+        recount(limit);
+    }
+
+    /* ---------- LedgerIndex ---------- */
+
+    @Override
+    public synchronized void onInserted(Transaction t) {
+        apply(t, 1);
+    }
+
+    @Override
+    public synchronized void onDeleted(Transaction t) {
+        apply(t, -1);
+    }
+
+    @Override
+    public synchronized void rebuild(List<Transaction> all) {
+        invalidate(); // limits may have been cleared together with the transactions
+        Map<String, BuyingLimit> map = limits();
+        if (map.isEmpty()) return;
+        long now = System.currentTimeMillis();
+        for (BuyingLimit b : map.values()) {
+            LimitUtil.rollForward(b, now);
+            b.usedInPeriod = 0;
+        }
+        if (all != null) {
+            for (Transaction t : all) {
+                BuyingLimit b = match(t, map);
+                if (b != null && inPeriod(b, t.epochMillis)) b.usedInPeriod += Math.abs(t.amount);
+            }
+        }
+        save();
+    }
+
+    @Override
+    public boolean needsRebuild() {
+        return false; // state lives in the persisted limits
+    }
+
+    /* ---------- Internals ---------- */
+
+    private void apply(Transaction t, int sign) {
+        BuyingLimit b = match(t, limits());
+        if (b == null) return;
+        if (LimitUtil.rollForward(b, System.currentTimeMillis())) {
+            recount(b); // the store already reflects this write
+        } else if (inPeriod(b, t.epochMillis)) {
+            b.usedInPeriod = Math.max(0, b.usedInPeriod + sign * Math.abs(t.amount));
+        } else {
+            return;
+        }
+        save();
+    }
+
+    private static BuyingLimit match(Transaction t, Map<String, BuyingLimit> map) {
+        if (t == null || t.type != TransactionType.EXPENSE || t.source == null) return null;
+        return map.get(normalize(t.source));
+    }
+
+    private static boolean inPeriod(BuyingLimit b, long epochMillis) {
+        return epochMillis >= b.periodStartMillis
+                && epochMillis < LimitUtil.periodEnd(b.frequency, b.periodStartMillis);
+    }
+
+    private void recount(BuyingLimit b) {
+        b.usedInPeriod = store.sumExpenseMajorBySource(normalize(b.platform), b.periodStartMillis,
+                LimitUtil.periodEnd(b.frequency, b.periodStartMillis));
+    }
+
+    private Map<String, BuyingLimit> limits() {
+        if (byPlatform == null) {
+            limits = prefs.getBuyingLimits();
+            byPlatform = new HashMap<>();
+            for (BuyingLimit b : limits) {
+                if (b != null && b.platform != null) byPlatform.put(normalize(b.platform), b);
+            }
+            if (!prefs.isLimitUsageMigrated()) migrate();
+        }
+        return byPlatform;
+    }
+
+    // One-time upgrade: usage stored by older versions was never kept in step with the ledger.
+    private void migrate() {
+        for (BuyingLimit b : byPlatform.values()) resetPeriod(b);
+        if (!byPlatform.isEmpty()) save();
+        prefs.setLimitUsageMigrated();
+    }
+
+    private void save() {
+        List<BuyingLimit> list = limits;
+        Map<String, BuyingLimit> map = byPlatform;
+        prefs.saveBuyingLimits(list);
+        // saveBuyingLimits drops the cache; the saved objects are still current.
+        limits = list;
+        byPlatform = map;
+    }
+}
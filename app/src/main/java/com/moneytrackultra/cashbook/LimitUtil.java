@@ -1,7 +1,5 @@
 package com.moneytrackultra.cashbook;
 
-import java.util.Calendar;
-
 /**
  * Utility for period expiration and formatting.
  */
@@ -10,29 +8,27 @@ public final class LimitUtil {
 
     public static boolean isPeriodExpired(BuyingLimit limit, long nowMillis){
         if (limit == null) return false;
-        Calendar start = Calendar.getInstance();
-        start.setTimeInMillis(limit.periodStartMillis);
-        Calendar end = (Calendar) start.clone();
-        switch (limit.frequency){
-            case DAILY:
-                end.add(Calendar.DAY_OF_YEAR, 1);
-                break;
-            case WEEKLY:
-                end.add(Calendar.WEEK_OF_YEAR, 1);
-                break;
-            case MONTHLY:
-                end.add(Calendar.MONTH, 1);
-                break;
-            case YEARLY:
-                end.add(Calendar.YEAR, 1);
-                break;
-        }
-        return nowMillis >= end.getTimeInMillis();
+        return PeriodBoundaries.get().isExpired(limit.frequency, limit.periodStartMillis, nowMillis);
+    }
+
+    /** End (exclusive) of the aligned period of the given frequency that contains startMillis. */
+    public static long periodEnd(BuyingLimitFrequency freq, long startMillis){
+        return PeriodBoundaries.get().containing(freq, startMillis).end;
+    }
+
+    /**
+     * Moves limit.periodStartMillis to the start of the aligned period containing nowMillis.
+     * Returns true if the period changed; usedInPeriod is then stale and must be recounted.
+     */
+    public static boolean rollForward(BuyingLimit limit, long nowMillis){
+        if (limit == null || !isPeriodExpired(limit, nowMillis)) return false;
+        limit.periodStartMillis = PeriodBoundaries.get().current(limit.frequency, nowMillis).start;
+        return true;
     }
 
+    /** Start of the current aligned period (today, this week, this month, this year). */
     public static long newPeriodStart(BuyingLimitFrequency freq){
-        // Could normalize to midnight; for simplicity current time
-        return System.currentTimeMillis();
+        return PeriodBoundaries.get().current(freq, System.currentTimeMillis()).start;
     }
 
     public static String humanFrequency(BuyingLimitFrequency f){
@@ -124,13 +124,8 @@ public class LoginActivity extends AppCompatActivity {
             auth.loginEmail(email, pw, new AuthManager.Callback() {
                 @Override
                 public void onSuccess(User u) {
-                    // If user just logged in online first time & no local hash yet,
-                    // create hash now for future offline usage.
-                    if (PrefsManager.get().getPasswordHash() == null) {
-                        PrefsManager.get().saveLocalPassword(pw.toCharArray());
-                        PrefsManager.get().saveProvider(AuthProvider.EMAIL.name());
-                    }
-
+                    // loginEmail already refreshes the local hash (in the background)
+                    // and stores the EMAIL provider for future offline usage.
                     setLoading(false);
                     goDashboard();
                 }
@@ -142,16 +137,18 @@ public class LoginActivity extends AppCompatActivity {
                 }
             });
         } else {
-            // Offline path (no network)
+            // Offline path (no network); verification runs off the main thread
+            setLoading(true);
             auth.offlineEmailLogin(email, pw, new AuthManager.Callback() {
                 @Override
                 public void onSuccess(User u) {
-
+                    setLoading(false);
                     goDashboard();
                 }
 
                 @Override
                 public void onError(String message) {
+                    setLoading(false);
                     toast(message);
                 }
             });
@@ -1,38 +1,259 @@
 package com.moneytrackultra.cashbook;
 
+import android.os.Handler;
+import android.os.Looper;
+
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+/**
+ * Data access for screens.
+ *
+ * The plain methods below run on the calling thread. Screens call them through load(...) /
+ * write(...), which run the work on one background thread in submission order and deliver
+ * the result on the main thread. Everything submitted for an owner (usually the activity)
+ * is dropped with cancel(owner), typically from onStop().
+ *
+ * Every change to transactions or buying limits, whoever made it, is also published as a
+ * RepositoryChange to the registered observers, so screens can patch what they show instead
+ * of reloading.
+ */
 public class OfflineRepository {
 
     private static OfflineRepository INSTANCE;
 
-    public static OfflineRepository get() {
+    public static synchronized OfflineRepository get() {
         if (INSTANCE == null) INSTANCE = new OfflineRepository();
         return INSTANCE;
     }
 
-    private OfflineRepository() {}
+    // One thread: queued reads see every write submitted before them.
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "cashbook-repo");
+        t.setPriority(Thread.NORM_PRIORITY - 1);
+        return t;
+    });
+    private final Handler main = new Handler(Looper.getMainLooper());
+    // Pending requests per owner; weak keys so a forgotten cancel() cannot leak an activity.
+    private final Map<Object, Set<Request>> pending = new WeakHashMap<>();
+    // Main thread only.
+    private final List<Observer> observers = new ArrayList<>();
+
+    private OfflineRepository() {
+        PrefsManager prefs = PrefsManager.get();
+        prefs.addLedgerListener(new ChangeFeed());
+        // Database open / legacy migration / index seeding, ahead of every screen's first load.
+        worker.execute(prefs::open);
+    }
+
+    /* ---------- Async API ---------- */
+
+    /** Work run on the repository thread. */
+    public interface Query<T> {
+        T run(OfflineRepository repo);
+    }
+
+    /** Result delivered on the main thread. */
+    public interface Callback<T> {
+        void onResult(T result);
+    }
+
+    /** Handle for one submitted query; cancel() drops it if it has not run / delivered yet. */
+    public static final class Request {
+        private volatile boolean cancelled;
+
+        public void cancel() { cancelled = true; }
+
+        public boolean isCancelled() { return cancelled; }
+    }
+
+    /**
+     * Runs a read off the main thread and delivers the result on it. Skipped entirely when
+     * cancelled before it starts; the callback is never called after cancel().
+     */
+    public <T> Request load(Object owner, Query<T> query, Callback<T> callback) {
+        return submit(owner, query, callback, true);
+    }
+
+    /**
+     * Like load(...), but the work always runs once submitted (a cancelled owner only loses
+     * the callback), so a save is never lost when the screen goes away.
+     */
+    public <T> Request write(Object owner, Query<T> query, Callback<T> callback) {
+        return submit(owner, query, callback, false);
+    }
+
+    /** Cancels everything submitted for {@code owner}. */
+    public void cancel(Object owner) {
+        if (owner == null) return;
+        Set<Request> set;
+        synchronized (pending) {
+            set = pending.remove(owner);
+        }
+        if (set == null) return;
+        for (Request r : set) r.cancel();
+    }
+
+    private <T> Request submit(Object owner, Query<T> query, Callback<T> callback, boolean skipIfCancelled) {
+        Request request = new Request();
+        track(owner, request, true);
+        worker.execute(() -> {
+            if (skipIfCancelled && request.isCancelled()) {
+                track(owner, request, false);
+                return;
+            }
+            T result;
+            try {
+                result = query.run(this);
+            } catch (Exception e) {
+                e.printStackTrace();
+                track(owner, request, false);
+                return;
+            }
+            main.post(() -> {
+                track(owner, request, false);
+                if (!request.isCancelled() && callback != null) callback.onResult(result);
+            });
+        });
+        return request;
+    }
+
+    private void track(Object owner, Request request, boolean add) {
+        if (owner == null) return;
+        synchronized (pending) {
+            Set<Request> set = pending.get(owner);
+            if (add) {
+                if (set == null) {
+                    set = Collections.newSetFromMap(new IdentityHashMap<>());
+                    pending.put(owner, set);
+                }
+                set.add(request);
+            } else if (set != null) {
+                set.remove(request);
+                if (set.isEmpty()) pending.remove(owner);
+            }
+        }
+    }
+
+    /* ---------- Change events ---------- */
+
+    /** Receives every RepositoryChange on the main thread. */
+    public interface Observer {
+        void onChanged(RepositoryChange change);
+    }
+
+    /** Main thread. Typically paired with removeObserver in onDestroy. */
+    public void addObserver(Observer o) {
+        if (o != null && !observers.contains(o)) observers.add(o);
+    }
+
+    /** Main thread. */
+    public void removeObserver(Observer o) {
+        observers.remove(o);
+    }
+
+    private void publish(RepositoryChange change) {
+        main.post(() -> {
+            // Copy: an observer may unregister itself while handling the change.
+            for (Observer o : new ArrayList<>(observers)) o.onChanged(change);
+        });
+    }
+
+    // Registered last with PrefsManager, so it runs after the indexes were updated.
+    private final class ChangeFeed implements LedgerIndex {
+        @Override public void onInserted(Transaction t) { publish(RepositoryChange.inserted(t)); }
+
+        @Override public void onDeleted(Transaction t) { publish(RepositoryChange.deleted(t)); }
+
+        @Override public void rebuild(List<Transaction> all) {
+            publish(all == null || all.isEmpty() ? RepositoryChange.cleared() : RepositoryChange.reloaded());
+        }
+
+        @Override public boolean needsRebuild() { return false; }
+    }
+
+    /* ---------- Sync API (call from Query.run or other background work) ---------- */
 
     // Wallets
     public List<Wallet> getWallets() {
         return PrefsManager.get().getWallets();
     }
 
-    // Filter transactions by type + optional source + optional date
+    // Filter transactions by type + optional source + optional date (indexed query, newest first)
     public List<Transaction> getTransactionsByType(String source, String date, TransactionType type) {
-        List<Transaction> all = PrefsManager.get().getTransactions();
-        List<Transaction> out = new ArrayList<>();
-        if (all == null) return out;
-        for (Transaction t : all) {
-            if (t == null) continue;
-            if (t.type == type &&
-                    (source == null || (t.source != null && t.source.equalsIgnoreCase(source))) &&
-                    (date == null || (t.date != null && t.date.equalsIgnoreCase(date)))) {
-                out.add(t);
-            }
-        }
-        return out;
+        if (type == null) return new ArrayList<>();
+        return PrefsManager.get().queryTransactions(type, source, date);
+    }
+
+    // Add one transaction at a given time (backdated entries included); single write, no re-sort
+    public Transaction insertTransaction(TransactionType type, double amountMajor, String title,
+                                         String source, String date, long epochMillis) {
+        return PrefsManager.get().insertTransaction(type, amountMajor, title, source, date, epochMillis);
+    }
+
+    // Running income / expense / balance totals (maintained on every write, no scan)
+    public LedgerTotals getLedgerTotals() {
+        return PrefsManager.get().getLedgerTotals();
+    }
+
+    // Newest-first cached snapshot (loaded from the store on first use)
+    public List<Transaction> getTransactionsSnapshot() {
+        return PrefsManager.get().getTransactionsSnapshot();
+    }
+
+    // Keyset pages on (epochMillis, id), newest first; see TransactionPager
+    public List<Transaction> getTransactionsOlderThan(long epochMillis, long id, int limit) {
+        return PrefsManager.get().queryTransactionsOlderThan(epochMillis, id, limit);
+    }
+
+    public List<Transaction> getTransactionsNewerThan(long epochMillis, long id, int limit) {
+        return PrefsManager.get().queryTransactionsNewerThan(epochMillis, id, limit);
+    }
+
+    public void deleteTransaction(long id) {
+        PrefsManager.get().deleteTransaction(id);
+    }
+
+    // Chart rollups / cubes (built on first use, then maintained on every write)
+    public TimeRollups getTimeRollups() {
+        return PrefsManager.get().getTimeRollups();
+    }
+
+    public CashFlowCube getCashFlowCube() {
+        return PrefsManager.get().getCashFlowCube();
+    }
+
+    public WeeklyRollup getWeeklyRollup() {
+        return PrefsManager.get().getWeeklyRollup();
+    }
+
+    // Balance screen: category headers, and the rows of one category
+    public List<BalanceAggregate> getCategoryTotals() {
+        return PrefsManager.get().getCategoryTotals();
+    }
+
+    public List<Transaction> getTransactionsByCategory(String category) {
+        return PrefsManager.get().queryTransactionsByCategory(category);
+    }
+
+    // Total of one type over local dates from..to (inclusive), O(log days)
+    public long sumBetween(TransactionType type, LocalDate from, LocalDate to) {
+        if (type == null || from == null || to == null) return 0;
+        return PrefsManager.get().getDailyBalanceIndex().sum(type, from.toEpochDay(), to.toEpochDay());
+    }
+
+    // Income minus expense up to the end of the given local date, O(log days)
+    public long balanceAsOf(LocalDate day) {
+        if (day == null) return 0;
+        return PrefsManager.get().getDailyBalanceIndex().balanceAsOf(day.toEpochDay());
     }
 
     public long sumAmount(List<Transaction> entries) {
@@ -59,27 +280,28 @@ public class OfflineRepository {
         return PrefsManager.get().getBuyingLimits();
     }
 
-    /**
-     * Update the limitAmount for a given platform.
-     * Recompute usedInPeriod percentage on the fly (not stored).
-     */
-    public void updateBuyingLimit(String platform, long newLimitAmount) {
+    // Buying limits with usedInPeriod refreshed from the usage index (may recount after a rollover)
+    public List<BuyingLimit> getBuyingLimitsWithUsage() {
         List<BuyingLimit> list = PrefsManager.get().getBuyingLimits();
-        boolean changed = false;
         for (BuyingLimit b : list) {
-            if (b != null && b.platform.equalsIgnoreCase(platform)) {
-                b.limitAmount = newLimitAmount;
-                // (Optional) clamp usedInPeriod if it now exceeds the new limit
-                if (b.limitAmount > 0 && b.usedInPeriod > b.limitAmount) {
-                    b.usedInPeriod = b.limitAmount;
-                }
-                changed = true;
-                break;
-            }
-        }
-        if (changed) {
-            PrefsManager.get().saveBuyingLimits(list);
+            if (b != null && b.platform != null) b.usedInPeriod = PrefsManager.get().getLimitUsage(b.platform);
         }
+        return list;
+    }
+
+    public long getLimitUsage(String platform) {
+        return PrefsManager.get().getLimitUsage(platform);
+    }
+
+    // Only the amount and frequency are the caller's; usage and the period stay with the index.
+    public void upsertBuyingLimit(String platform, long limitAmount, BuyingLimitFrequency frequency) {
+        PrefsManager.get().upsertBuyingLimit(platform, limitAmount, frequency);
+        publish(RepositoryChange.limitsChanged(platform));
+    }
+
+    // Removes all transactions, wallets, weekly stats, limits and the currency; keeps the user
+    public void clearDomainData() {
+        PrefsManager.get().clearAllDomainDataPreserveUser(); // publishes CLEARED
     }
 
     /**
@@ -94,29 +316,6 @@ public class OfflineRepository {
         return (int) pct;
     }
 
-    /**
-     * Increment usage (usedInPeriod) for a platform (e.g., when new expense recorded).
-     * This does NOT handle period rollover (add logic if needed).
-     */
-    public void addUsage(String platform, long amount) {
-        if (amount <= 0) return;
-        List<BuyingLimit> list = PrefsManager.get().getBuyingLimits();
-        boolean changed = false;
-        for (BuyingLimit b : list) {
-            if (b != null && b.platform.equalsIgnoreCase(platform)) {
-                b.usedInPeriod += amount;
-                if (b.limitAmount > 0 && b.usedInPeriod > b.limitAmount) {
-                    b.usedInPeriod = b.limitAmount;
-                }
-                changed = true;
-                break;
-            }
-        }
-        if (changed) {
-            PrefsManager.get().saveBuyingLimits(list);
-        }
-    }
-
     // User
     public User getUser() {
         return PrefsManager.get().getUser();
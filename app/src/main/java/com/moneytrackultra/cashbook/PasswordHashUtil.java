@@ -1,9 +1,17 @@
 package com.moneytrackultra.cashbook;
 
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.security.spec.InvalidKeySpecException;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import javax.crypto.SecretKeyFactory;
 import javax.crypto.spec.PBEKeySpec;
@@ -11,37 +19,224 @@ import javax.crypto.spec.PBEKeySpec;
 /**
  * PBKDF2 password hashing helper for offline email login.
  * NOT for production-grade multi-user server security, but adequate locally.
+ *
+ * hash / verify block for the full iteration count; UI code uses hashAsync / verifyAsync,
+ * which run on a dedicated worker thread and report back on the main thread with the time
+ * the derivation took.
+ *
+ * The iteration count is calibrated per device: calibrate() times a short PBKDF2 run and
+ * scales it to TARGET_MILLIS, never going below LEGACY_ITERATIONS (the old fixed count, which
+ * hashes stored without parameters were made with). New hashes use the calibrated count;
+ * needsRehash() tells callers when a stored hash is weaker than that.
  */
 public class PasswordHashUtil {
 
-    private static final int ITERATIONS = 12000;
+    private static final String TAG = "PasswordHash";
+
+    /** Count used before calibration existed; hashes stored without a count use it. */
+    public static final int LEGACY_ITERATIONS = 12000;
+    private static final int MAX_ITERATIONS = 2_000_000;
+    private static final int PROBE_ITERATIONS = 4000;
+    private static final int PROBE_RUNS = 3;
+    private static final long TARGET_MILLIS = 250;
     private static final int KEY_LENGTH_BITS = 256;
     private static final String ALGO = "PBKDF2WithHmacSHA256";
     private static final SecureRandom RNG = new SecureRandom();
 
+    // Provider lookup is slow and SecretKeyFactory is not thread-safe: one per thread.
+    private static final ThreadLocal<SecretKeyFactory> FACTORY = new ThreadLocal<SecretKeyFactory>() {
+        @Override protected SecretKeyFactory initialValue() {
+            try {
+                return SecretKeyFactory.getInstance(ALGO);
+            } catch (NoSuchAlgorithmException e) {
+                throw new RuntimeException("Hash failure", e);
+            }
+        }
+    };
+
+    private static final ExecutorService WORKER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "cashbook-pbkdf2");
+        t.setPriority(Thread.NORM_PRIORITY - 1);
+        return t;
+    });
+    private static final Handler MAIN = new Handler(Looper.getMainLooper());
+
+    private static volatile long lastHashMillis = -1;
+    private static volatile int calibratedIterations; // 0 = not calibrated yet
+
+    public interface HashCallback {
+        void onHashed(String saltB64, String hashB64, int iterations, long elapsedMillis);
+    }
+
+    public interface CalibrationCallback {
+        void onCalibrated(int iterations);
+    }
+
+    public interface VerifyCallback {
+        void onVerified(boolean ok, long elapsedMillis);
+    }
+
     public static String newSalt() {
         byte[] salt = new byte[16];
         RNG.nextBytes(salt);
         return Base64.getEncoder().encodeToString(salt);
     }
 
-    public static String hash(char[] password, String saltB64) {
+    public static String hash(char[] password, String saltB64, int iterations) {
+        PBEKeySpec spec = null;
         try {
             byte[] salt = Base64.getDecoder().decode(saltB64);
-            PBEKeySpec spec = new PBEKeySpec(password, salt, ITERATIONS, KEY_LENGTH_BITS);
-            SecretKeyFactory skf = SecretKeyFactory.getInstance(ALGO);
-            byte[] key = skf.generateSecret(spec).getEncoded();
+            spec = new PBEKeySpec(password, salt, iterations, KEY_LENGTH_BITS);
+            long start = SystemClock.elapsedRealtime();
+            byte[] key = FACTORY.get().generateSecret(spec).getEncoded();
+            lastHashMillis = SystemClock.elapsedRealtime() - start;
             return Base64.getEncoder().encodeToString(key);
-        } catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
+        } catch (InvalidKeySpecException e) {
             throw new RuntimeException("Hash failure", e);
+        } finally {
+            if (spec != null) spec.clearPassword();
         }
     }
 
-    public static boolean verify(char[] password, String saltB64, String expectedHashB64) {
-        String h = hash(password, saltB64);
+    public static boolean verify(char[] password, String saltB64, String expectedHashB64, int iterations) {
+        String h = hash(password, saltB64, iterations);
         return slowEquals(expectedHashB64, h);
     }
 
+    /** Duration of the last key derivation on any thread, in ms (-1 before the first one). */
+    public static long lastHashMillis() {
+        return lastHashMillis;
+    }
+
+    /* ---------- Calibration ---------- */
+
+    /** Restores a count calibrated on an earlier run (ignored if <= 0). */
+    public static void setCalibratedIterations(int iterations) {
+        if (iterations > 0) calibratedIterations = clamp(iterations);
+    }
+
+    /** Calibrated count, or 0 while calibration has not run. */
+    public static int calibratedIterations() {
+        return calibratedIterations;
+    }
+
+    /**
+     * True when a hash made with {@code storedIterations} is cheaper than what this device
+     * would use now. Always false before calibration.
+     */
+    public static boolean needsRehash(int storedIterations) {
+        int target = calibratedIterations;
+        return target > 0 && storedIterations < target;
+    }
+
+    /**
+     * Calibrates on the worker unless already done; the callback runs on the main thread with
+     * the count (also when it was already known).
+     */
+    public static void calibrateAsync(CalibrationCallback cb) {
+        WORKER.execute(() -> {
+            try {
+                int n = targetIterations();
+                if (cb != null) MAIN.post(() -> cb.onCalibrated(n));
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    // Worker thread only: later jobs on the worker see the result without further locking.
+    private static int targetIterations() {
+        int n = calibratedIterations;
+        if (n <= 0) {
+            n = calibrate();
+            calibratedIterations = n;
+        }
+        return n;
+    }
+
+    /**
+     * Times PROBE_RUNS derivations of PROBE_ITERATIONS (the first one also warms up the
+     * provider) and scales the fastest to TARGET_MILLIS. Blocks for well under TARGET_MILLIS.
+     */
+    static int calibrate() {
+        char[] probe = "calibration".toCharArray();
+        byte[] salt = new byte[16];
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < PROBE_RUNS; i++) {
+            PBEKeySpec spec = new PBEKeySpec(probe, salt, PROBE_ITERATIONS, KEY_LENGTH_BITS);
+            try {
+                long start = System.nanoTime();
+                FACTORY.get().generateSecret(spec);
+                best = Math.min(best, System.nanoTime() - start);
+            } catch (InvalidKeySpecException e) {
+                throw new RuntimeException("Hash failure", e);
+            } finally {
+                spec.clearPassword();
+            }
+        }
+        long perTarget = PROBE_ITERATIONS * (TARGET_MILLIS * 1_000_000L) / Math.max(best, 1L);
+        int n = clamp(perTarget);
+        Log.d(TAG, "calibrated " + n + " iterations (" + PROBE_ITERATIONS + " took "
+                + (best / 1000) + " us)");
+        return n;
+    }
+
+    // Bounded and rounded down to a multiple of 1000.
+    private static int clamp(long iterations) {
+        long n = Math.max(LEGACY_ITERATIONS, Math.min(MAX_ITERATIONS, iterations));
+        return (int) (n - n % 1000);
+    }
+
+    /* ---------- Background pipeline ---------- */
+
+    /**
+     * Hashes with a new salt and the calibrated count on the worker (calibrating first if
+     * needed). {@code password} is wiped once hashed; the callback runs on the main thread
+     * with the count used (not called if hashing failed).
+     */
+    public static void hashAsync(char[] password, HashCallback cb) {
+        WORKER.execute(() -> {
+            try {
+                int iterations = targetIterations();
+                String salt = newSalt();
+                long start = SystemClock.elapsedRealtime();
+                String hash = hash(password, salt, iterations);
+                long ms = SystemClock.elapsedRealtime() - start;
+                Log.d(TAG, "hash took " + ms + " ms (" + iterations + " iterations)");
+                if (cb != null) MAIN.post(() -> cb.onHashed(salt, hash, iterations, ms));
+            } catch (Exception e) {
+                e.printStackTrace();
+            } finally {
+                Arrays.fill(password, '\0');
+            }
+        });
+    }
+
+    /**
+     * Verifies on the worker with the count the hash was stored with. {@code password} is
+     * wiped afterwards; the callback runs on the main thread and reports false if hashing failed.
+     */
+    public static void verifyAsync(char[] password, String saltB64, String expectedHashB64,
+                                   int iterations, VerifyCallback cb) {
+        WORKER.execute(() -> {
+            boolean ok = false;
+            long ms = -1;
+            try {
+                long start = SystemClock.elapsedRealtime();
+                ok = verify(password, saltB64, expectedHashB64, iterations);
+                ms = SystemClock.elapsedRealtime() - start;
+                Log.d(TAG, "verify took " + ms + " ms (" + iterations + " iterations)");
+            } catch (Exception e) {
+                e.printStackTrace();
+            } finally {
+                Arrays.fill(password, '\0');
+            }
+            final boolean result = ok;
+            final long elapsed = ms;
+            MAIN.post(() -> cb.onVerified(result, elapsed));
+        });
+    }
+
     // Prevent timing attacks (constant-ish time compare)
     private static boolean slowEquals(String a, String b) {
         if (a == null || b == null) return false;
@@ -52,4 +247,4 @@ public class PasswordHashUtil {
         }
         return diff == 0;
     }
-}
\ No newline at end of file
+}
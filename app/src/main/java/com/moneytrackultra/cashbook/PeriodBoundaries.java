@@ -0,0 +1,111 @@
+package com.moneytrackultra.cashbook;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.TemporalAdjusters;
+import java.time.temporal.WeekFields;
+import java.util.Locale;
+
+/**
+ * Calendar-aligned DAILY / WEEKLY / MONTHLY / YEARLY windows in the device zone.
+ *
+ * Windows start at local midnight of the day / first day of the week (locale) / 1st of the
+ * month / Jan 1st and end (exclusive) where the next one starts; DST is handled by java.time.
+ *
+ * The window containing "now" is computed once per frequency and reused until now passes its
+ * end, so current(...) is normally one range check and isExpired(...) a single comparison.
+ * Other timestamps are computed on demand. Call reset() after a time zone or locale change.
+ */
+final class PeriodBoundaries {
+
+    /** Immutable [start, end) in epoch millis. */
+    static final class Window {
+        final long start;
+        final long end;
+
+        Window(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        boolean contains(long epochMillis) {
+            return epochMillis >= start && epochMillis < end;
+        }
+    }
+
+    private static final PeriodBoundaries INSTANCE = new PeriodBoundaries();
+
+    static PeriodBoundaries get() { return INSTANCE; }
+
+    private volatile ZoneId zone;
+    private volatile DayOfWeek firstDayOfWeek;
+    // Indexed by BuyingLimitFrequency.ordinal(); each slot is replaced as a whole.
+    private final Window[] current = new Window[BuyingLimitFrequency.values().length];
+
+    private PeriodBoundaries() {
+        reset();
+    }
+
+    /** Re-reads the default zone and locale and drops the cached windows. */
+    synchronized void reset() {
+        zone = ZoneId.systemDefault();
+        firstDayOfWeek = WeekFields.of(Locale.getDefault()).getFirstDayOfWeek();
+        for (int i = 0; i < current.length; i++) current[i] = null;
+    }
+
+    /** The window of the given frequency containing {@code nowMillis}; cached while it lasts. */
+    Window current(BuyingLimitFrequency freq, long nowMillis) {
+        int slot = frequency(freq).ordinal();
+        Window w = current[slot];
+        if (w != null && w.contains(nowMillis)) return w;
+        w = compute(frequency(freq), nowMillis);
+        current[slot] = w;
+        return w;
+    }
+
+    /** The window of the given frequency containing {@code epochMillis} (past or future). */
+    Window containing(BuyingLimitFrequency freq, long epochMillis) {
+        Window w = current[frequency(freq).ordinal()];
+        if (w != null && w.contains(epochMillis)) return w;
+        return compute(frequency(freq), epochMillis);
+    }
+
+    /** True when a period that started at {@code periodStart} is over at {@code nowMillis}. */
+    boolean isExpired(BuyingLimitFrequency freq, long periodStart, long nowMillis) {
+        return periodStart < current(freq, nowMillis).start;
+    }
+
+    private Window compute(BuyingLimitFrequency freq, long epochMillis) {
+        ZoneId z = zone;
+        LocalDate day = Instant.ofEpochMilli(epochMillis).atZone(z).toLocalDate();
+        LocalDate start;
+        LocalDate end;
+        switch (freq) {
+            case DAILY:
+                start = day;
+                end = day.plusDays(1);
+                break;
+            case WEEKLY:
+                start = day.with(TemporalAdjusters.previousOrSame(firstDayOfWeek));
+                end = start.plusWeeks(1);
+                break;
+            case YEARLY:
+                start = day.withDayOfYear(1);
+                end = start.plusYears(1);
+                break;
+            case MONTHLY:
+            default:
+                start = day.withDayOfMonth(1);
+                end = start.plusMonths(1);
+                break;
+        }
+        return new Window(start.atStartOfDay(z).toInstant().toEpochMilli(),
+                end.atStartOfDay(z).toInstant().toEpochMilli());
+    }
+
+    private static BuyingLimitFrequency frequency(BuyingLimitFrequency f) {
+        return f == null ? BuyingLimitFrequency.MONTHLY : f;
+    }
+}
@@ -3,12 +3,14 @@ package com.moneytrackultra.cashbook;
 import android.content.Context;
 import android.content.SharedPreferences;
 
-import org.json.JSONArray;
 import org.json.JSONObject;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 public class PrefsManager {
 
@@ -21,6 +23,8 @@ public class PrefsManager {
     private static final String KEY_SOFT_LOGOUT  = "soft_logout";
     private static final String KEY_PWD_SALT     = "pwd_salt";
     private static final String KEY_PWD_HASH     = "pwd_hash";
+    private static final String KEY_PWD_ITERATIONS = "pwd_iterations";
+    private static final String KEY_HASH_CALIBRATED = "pwd_calibrated_iterations";
     private static final String KEY_TX           = "transactions_json";
     private static final String KEY_WALLETS      = "wallets_json";
 
@@ -29,12 +33,71 @@ public class PrefsManager {
     private static final String KEY_WEEKLY       = "weekly_aggregates_json";
     private static final String KEY_BUYING       = "buying_limits_json";
     private static final String KEY_SEED_VERSION = "seed_version";
+    private static final String KEY_TX_STORE_MIGRATED = "tx_store_migrated";
+    private static final String KEY_LIMIT_USAGE_MIGRATED = "limit_usage_migrated";
 
     private static PrefsManager INSTANCE;
     private final SharedPreferences sp;
+    private final TransactionStore store;
+    private final TransactionIdGenerator ids;
+
+    // Materialized views kept in step with the store (see LedgerIndex).
+    private final LedgerTotalsIndex ledgerTotals = new LedgerTotalsIndex();
+    private final TimeRollups timeRollups = new TimeRollups();
+    private final DailyBalanceIndex dailyBalance = new DailyBalanceIndex();
+    private final LimitUsageIndex limitUsage;
+    private final CashFlowCube cashFlowCube = new CashFlowCube();
+    private final WeeklyRollup weeklyRollup = new WeeklyRollup();
+    private final List<LedgerIndex> ledgerIndexes = new ArrayList<>();
+    // Set by open() once legacy data is in the store and the indexes are seeded.
+    private volatile boolean opened;
+
+    // Newest-first, read-only view of the store; rebuilt lazily after each mutation.
+    private List<Transaction> txSnapshot;
+
+    // Bumped by every local password save / clear (under passwordLock); a hash that finishes
+    // after a newer save or a clear is dropped instead of bringing the old password back.
+    private final Object passwordLock = new Object();
+    private int passwordGeneration;
+
+    // Order of the snapshot; adapters patching a newest-first list use it too.
+    static final Comparator<Transaction> NEWEST_FIRST = (a, b) -> {
+        int c = Long.compare(b.epochMillis, a.epochMillis);
+        return c != 0 ? c : Long.compare(b.id, a.id);
+    };
 
     private PrefsManager(Context ctx) {
-        sp = ctx.getApplicationContext().getSharedPreferences(PREF, Context.MODE_PRIVATE);
+        Context app = ctx.getApplicationContext();
+        sp = app.getSharedPreferences(PREF, Context.MODE_PRIVATE);
+        ids = new TransactionIdGenerator(sp);
+        // The helper does not touch the file until first use; see open().
+        store = new SqliteTransactionStore(new CashbookDatabase(app));
+        ledgerIndexes.add(ledgerTotals);
+        ledgerIndexes.add(timeRollups);
+        ledgerIndexes.add(dailyBalance);
+        limitUsage = new LimitUsageIndex(this, store);
+        ledgerIndexes.add(limitUsage);
+        ledgerIndexes.add(cashFlowCube);
+        ledgerIndexes.add(weeklyRollup);
+    }
+
+    /**
+     * Opens the database, moves legacy data into it and seeds the indexes; runs once.
+     * This is the slow part of startup, so init() leaves it out: OfflineRepository runs it first
+     * on its worker, and every transaction / limit method calls it in case it has not run yet.
+     */
+    synchronized void open() {
+        if (opened) return;
+        migrateIntoStore(); // before seeding the totals from the store
+        ledgerTotals.seed(store.ledgerTotals());
+        weeklyRollup.seed(store.weeklyTotals());
+        if (sp.contains(KEY_WEEKLY)) sp.edit().remove(KEY_WEEKLY).apply(); // now in weekly_totals
+        restoreLedgerIndexes();
+        opened = true;
+    }
+
+    private void ensureOpen() {
+        if (!opened) open();
     }
 
     public static void init(Context ctx) {
@@ -95,126 +158,305 @@ public class PrefsManager {
 
     /* ---------- Local Password (offline) ---------- */
 
+    /**
+     * Hashes on PasswordHashUtil's worker and stores salt + hash + iteration count when done
+     * (returns at once). {@code plainPassword} is wiped after hashing. The result is discarded
+     * if the password was cleared or saved again in the meantime.
+     */
     public void saveLocalPassword(char[] plainPassword) {
         if (plainPassword == null) { clearLocalPassword(); return; }
-        String salt = PasswordHashUtil.newSalt();
-        String hash = PasswordHashUtil.hash(plainPassword, salt);
-        sp.edit().putString(KEY_PWD_SALT, salt).putString(KEY_PWD_HASH, hash).apply();
+        int generation;
+        synchronized (passwordLock) {
+            generation = ++passwordGeneration;
+        }
+        PasswordHashUtil.hashAsync(plainPassword, (salt, hash, iterations, ms) -> {
+            synchronized (passwordLock) {
+                if (generation != passwordGeneration) return;
+                sp.edit()
+                        .putString(KEY_PWD_SALT, salt)
+                        .putString(KEY_PWD_HASH, hash)
+                        .putInt(KEY_PWD_ITERATIONS, iterations)
+                        .apply();
+            }
+        });
+    }
+    public void clearLocalPassword() {
+        synchronized (passwordLock) {
+            passwordGeneration++;
+            sp.edit().remove(KEY_PWD_SALT).remove(KEY_PWD_HASH).remove(KEY_PWD_ITERATIONS).apply();
+        }
     }
-    public void clearLocalPassword() { sp.edit().remove(KEY_PWD_SALT).remove(KEY_PWD_HASH).apply(); }
     public String getPasswordSalt() { return sp.getString(KEY_PWD_SALT, null); }
     public String getPasswordHash() { return sp.getString(KEY_PWD_HASH, null); }
+    /** Iterations the stored hash was made with; hashes from before calibration used the legacy count. */
+    public int getPasswordIterations() {
+        return sp.getInt(KEY_PWD_ITERATIONS, PasswordHashUtil.LEGACY_ITERATIONS);
+    }
+
+    // Device PBKDF2 cost, measured once (see App / PasswordHashUtil.calibrate); 0 = not yet.
+    public int getCalibratedHashIterations() { return sp.getInt(KEY_HASH_CALIBRATED, 0); }
+    public void saveCalibratedHashIterations(int iterations) {
+        sp.edit().putInt(KEY_HASH_CALIBRATED, iterations).apply();
+    }
 
     /* ---------- Transactions ---------- */
 
+    /*
+     * Transactions live in a TransactionStore (SQLite by default, see SqliteTransactionStore).
+     * Full reads are served from a cached snapshot that every mutation invalidates;
+     * filtered reads go to the store's indexes.
+     * Writes and index builds hold this instance's lock, so screens may call in from
+     * OfflineRepository's background thread. The store is opened lazily (open()), never from
+     * init(), so Application.onCreate does not wait on the database.
+     */
+
+    /**
+     * Cached, newest-first, unmodifiable list of all transactions.
+     * Repeated calls between mutations return the same instance, so screens can read it freely.
+     * The Transaction objects are shared: copy them before changing any field.
+     */
+    public synchronized List<Transaction> getTransactionsSnapshot() {
+        ensureOpen();
+        if (txSnapshot == null) {
+            List<Transaction> list = store.loadAll();
+            Collections.sort(list, NEWEST_FIRST);
+            txSnapshot = Collections.unmodifiableList(list);
+        }
+        return txSnapshot;
+    }
+
+    /**
+     * Mutable copy of the snapshot list (newest first) for callers that add, remove or reorder
+     * entries. Only the list is copied: the Transaction objects are the cached snapshot's, which
+     * the indexes were built from, so they must not be modified.
+     */
     public List<Transaction> getTransactions() {
-        String raw = sp.getString(KEY_TX, "[]");
-        List<Transaction> out = new ArrayList<>();
-        try {
-            JSONArray arr = new JSONArray(raw);
-            for (int i = 0; i < arr.length(); i++) {
-                JSONObject o = arr.getJSONObject(i);
-                long id = o.optLong("id");
-                TransactionType type = TransactionType.valueOf(o.optString("type", TransactionType.EXPENSE.name()));
-                long amountMinor = o.has("amountMinor") ? o.optLong("amountMinor")
-                        : (o.has("amount") ? o.optLong("amount") * 100 : 0);
-                Transaction t = new Transaction(id, type, amountMinor, o.optLong("epochMillis"), o.optString("title", ""));
-                if (o.has("amount")) t.amount = o.optLong("amount"); else t.amount = amountMinor / 100;
-                t.source = o.optString("source", null);
-                t.date   = o.optString("date", null);
-                out.add(t);
-            }
-        } catch (Exception e) { e.printStackTrace(); }
-        Collections.sort(out, (a,b) -> Long.compare(b.epochMillis, a.epochMillis));
-        return out;
+        return new ArrayList<>(getTransactionsSnapshot());
+    }
+
+    // Copy-on-write: readers may still hold the previous snapshot instance.
+    private synchronized void insertIntoSnapshot(Transaction t) {
+        if (txSnapshot != null) {
+            int pos = Collections.binarySearch(txSnapshot, t, NEWEST_FIRST);
+            if (pos < 0) pos = -(pos + 1);
+            List<Transaction> next = new ArrayList<>(txSnapshot.size() + 1);
+            next.addAll(txSnapshot.subList(0, pos));
+            next.add(t);
+            next.addAll(txSnapshot.subList(pos, txSnapshot.size()));
+            txSnapshot = Collections.unmodifiableList(next);
+        }
+    }
+
+    private synchronized void invalidateTransactions() {
+        txSnapshot = null;
     }
 
     public void addTransaction(TransactionType type, double amountMajor, String title, String source, String date) {
+        insertTransaction(type, amountMajor, title, source, date, System.currentTimeMillis());
+    }
+
+    /**
+     * Adds one transaction with an explicit timestamp (e.g. a backdated entry) in a single
+     * store write. A cached snapshot is kept and the new row is spliced in at its
+     * binary-searched position, so nothing is reloaded or re-sorted.
+     */
+    public synchronized Transaction insertTransaction(TransactionType type, double amountMajor, String title,
+                                         String source, String date, long epochMillis) {
+        ensureOpen();
         long amountMinor = Math.round(amountMajor * 100);
-        Transaction t = new Transaction(System.currentTimeMillis(), type, amountMinor, System.currentTimeMillis(), title);
+        Transaction t = new Transaction(ids.next(), type, amountMinor, epochMillis, title);
         t.amount = (long) amountMajor;
         t.source = source;
         t.date   = date;
-        List<Transaction> list = getTransactions();
-        list.add(0, t);
-        saveTransactions(list);
+        store.insert(t);
+        insertIntoSnapshot(t);
+        for (LedgerIndex idx : ledgerIndexes) idx.onInserted(t);
+        return t;
     }
 
     public void addTransaction(TransactionType type, double amountMajor, String title) {
         addTransaction(type, amountMajor, title, null, null);
     }
 
-    public void deleteTransaction(long id) {
-        List<Transaction> list = getTransactions();
-        for (int i = 0; i < list.size(); i++) {
-            if (list.get(i).id == id) {
-                list.remove(i);
-                break;
-            }
-        }
-        saveTransactions(list);
+    public synchronized void deleteTransaction(long id) {
+        ensureOpen();
+        Transaction removed = store.delete(id);
+        if (removed == null) return; // already gone (repeated or stale delete): nothing changed
+        invalidateTransactions();
+        for (LedgerIndex idx : ledgerIndexes) idx.onDeleted(removed);
     }
 
     // Alias if some code still calls deleteTransactionById
     public void deleteTransactionById(long id) { deleteTransaction(id); }
 
-    public void replaceTransactions(List<Transaction> newList) {
-        if (newList == null) newList = new ArrayList<>();
-        Collections.sort(newList, (a,b) -> Long.compare(b.epochMillis, a.epochMillis));
-        saveTransactions(newList);
+    /** Replaces every transaction; the caller's list is copied, not sorted in place. */
+    public synchronized void replaceTransactions(List<Transaction> newList) {
+        ensureOpen();
+        List<Transaction> list = newList == null ? new ArrayList<>() : new ArrayList<>(newList);
+        assignUniqueIds(list);
+        Collections.sort(list, NEWEST_FIRST);
+        store.replaceAll(list);
+        invalidateTransactions();
+        rebuildLedgerIndexes(list);
+    }
+
+    /** Income / expense / balance totals over every transaction; no list is read. */
+    public LedgerTotals getLedgerTotals() {
+        ensureOpen();
+        return ledgerTotals.current();
+    }
+
+    /**
+     * Hour / day chart rollups. Built on first use from the rows inside the chart horizon only.
+     */
+    public synchronized TimeRollups getTimeRollups() {
+        ensureOpen();
+        if (!timeRollups.isCurrent()) {
+            timeRollups.rebuild(store.queryRange(
+                    TimeRollups.horizonStart(System.currentTimeMillis()), Long.MAX_VALUE));
+        }
+        return timeRollups;
+    }
+
+    /**
+     * Per-day prefix sums for date-range totals and balance-as-of queries. Built on first use.
+     */
+    public synchronized DailyBalanceIndex getDailyBalanceIndex() {
+        ensureOpen();
+        if (!dailyBalance.isCurrent()) {
+            dailyBalance.rebuild(getTransactionsSnapshot());
+        }
+        return dailyBalance;
+    }
+
+    /**
+     * Month x category x type cube behind the Cash Flow chart filters. Built on first use.
+     */
+    public synchronized CashFlowCube getCashFlowCube() {
+        ensureOpen();
+        if (!cashFlowCube.isCurrent()) {
+            cashFlowCube.rebuild(getTransactionsSnapshot());
+        }
+        return cashFlowCube;
+    }
+
+    /**
+     * Calendar-week series (ISO weeks) for the Cash Flow chart. Totals are persisted; the
+     * per-category breakdown is loaded on first use.
+     */
+    public synchronized WeeklyRollup getWeeklyRollup() {
+        ensureOpen();
+        if (!weeklyRollup.hasCategories()) {
+            weeklyRollup.loadCategories(getTransactionsSnapshot());
+        }
+        return weeklyRollup;
+    }
+
+    /**
+     * Registers an extra listener kept in step with the store after the built-in indexes
+     * (e.g. OfflineRepository's change feed). It is not consulted by restoreLedgerIndexes.
+     */
+    synchronized void addLedgerListener(LedgerIndex listener) {
+        ledgerIndexes.add(listener);
+    }
+
+    private void rebuildLedgerIndexes(List<Transaction> all) {
+        for (LedgerIndex idx : ledgerIndexes) idx.rebuild(all);
+    }
+
+    // Rebuilds indexes whose persisted state is missing (first run, upgrade); one load at most.
+    private void restoreLedgerIndexes() {
+        List<Transaction> all = null;
+        for (LedgerIndex idx : ledgerIndexes) {
+            if (!idx.needsRebuild()) continue;
+            if (all == null) all = store.loadAll();
+            idx.rebuild(all);
+        }
+    }
+
+    /** Transactions of one type, optionally filtered by source / date string (ignore case). Newest first. */
+    public List<Transaction> queryTransactions(TransactionType type, String source, String date) {
+        ensureOpen();
+        return store.queryByType(type, source, date);
+    }
+
+    /** Transactions with fromMillis <= epochMillis < toMillis. Newest first. */
+    public List<Transaction> queryTransactionsInRange(long fromMillis, long toMillis) {
+        ensureOpen();
+        return store.queryRange(fromMillis, toMillis);
+    }
+
+    /** Keyset page of up to {@code limit} transactions older than (epochMillis, id). Newest first. */
+    public List<Transaction> queryTransactionsOlderThan(long epochMillis, long id, int limit) {
+        ensureOpen();
+        return store.pageOlder(epochMillis, id, limit);
+    }
+
+    /** The {@code limit} transactions just newer than (epochMillis, id). Newest first. */
+    public List<Transaction> queryTransactionsNewerThan(long epochMillis, long id, int limit) {
+        ensureOpen();
+        return store.pageNewer(epochMillis, id, limit);
     }
 
-    private void saveTransactions(List<Transaction> list) {
-        JSONArray arr = new JSONArray();
+    /**
+     * Group headers for the Balance screen: one per Transaction.category() with income / expense
+     * sums, most recently active first. Read from the category index; transactions are left empty.
+     */
+    public List<BalanceAggregate> getCategoryTotals() {
+        ensureOpen();
+        return store.categoryTotals();
+    }
+
+    /** Transactions of one category (exact category() match). Newest first. */
+    public List<Transaction> queryTransactionsByCategory(String category) {
+        ensureOpen();
+        return store.queryByCategory(category);
+    }
+
+    /** Total expense (legacy major units) recorded against a source / platform. */
+    public long sumExpenseBySource(String source) {
+        ensureOpen();
+        return store.sumExpenseMajorBySource(source);
+    }
+
+    /** One-time move of the old transactions_json array into the store. */
+    private void migrateIntoStore() {
+        if (sp.getBoolean(KEY_TX_STORE_MIGRATED, false)) return;
+        if (sp.contains(KEY_TX)) {
+            List<Transaction> legacy = parseLegacyTransactions(sp.getString(KEY_TX, "[]"));
+            // Older data predates epochDay: resolve it once from the picked display date.
+            EpochDays.LegacyDays legacyDays = new EpochDays.LegacyDays();
+            for (Transaction t : legacy) t.epochDay = legacyDays.epochDay(t.date, t.epochMillis);
+            assignUniqueIds(legacy);
+            store.replaceAll(legacy);
+        }
+        sp.edit().remove(KEY_TX).putBoolean(KEY_TX_STORE_MIGRATED, true).apply();
+    }
+
+    /**
+     * Older builds used System.currentTimeMillis() as the id, so two rows saved in the same
+     * millisecond share one. The first keeps it; the rest get a fresh generator id, which is
+     * above every legacy id. Keeps tx_id unique for the store and for RecyclerView stable ids.
+     */
+    private void assignUniqueIds(List<Transaction> list) {
+        Set<Long> seen = new HashSet<>();
         for (Transaction t : list) {
-            JSONObject o = new JSONObject();
-            try {
-                o.put("id", t.id);
-                o.put("type", t.type.name());
-                o.put("amountMinor", t.getAmountMinor());
-                o.put("amount", t.amount);
-                o.put("epochMillis", t.epochMillis);
-                o.put("title", t.title);
-                if (t.source != null) o.put("source", t.source);
-                if (t.date != null)   o.put("date", t.date);
-            } catch (Exception e) { e.printStackTrace(); }
-            arr.put(o);
+            if (t == null) continue;
+            if (t.id <= 0 || !seen.add(t.id)) {
+                t.id = ids.next();
+                seen.add(t.id);
+            }
         }
-        sp.edit().putString(KEY_TX, arr.toString()).apply();
+    }
+
+    private List<Transaction> parseLegacyTransactions(String raw) {
+        return JsonStreamCodec.readTransactions(raw);
     }
 
     /* ---------- Wallets (optional) ---------- */
 
     public List<Wallet> getWallets() {
-        String raw = sp.getString(KEY_WALLETS, "[]");
-        List<Wallet> out = new ArrayList<>();
-        try {
-            JSONArray arr = new JSONArray(raw);
-            for (int i=0;i<arr.length();i++) {
-                JSONObject jw = arr.getJSONObject(i);
-                Wallet w = new Wallet();
-                w.id = jw.optLong("id");
-                w.name = jw.optString("name","Wallet");
-                w.balance = jw.optLong("balance",0);
-                JSONArray txArr = jw.optJSONArray("transactions");
-                if (txArr != null) {
-                    for (int j=0;j<txArr.length();j++) {
-                        JSONObject jtx = txArr.getJSONObject(j);
-                        WalletTransaction wt = new WalletTransaction();
-                        wt.id = jtx.optLong("id");
-                        wt.amount = jtx.optLong("amount");
-                        wt.note = jtx.optString("note","");
-                        wt.epochMillis = jtx.optLong("epochMillis");
-                        wt.title = jtx.optString("title", null);
-                        wt.source = jtx.optString("source", null);
-                        wt.date = jtx.optString("date", null);
-                        w.transactions.add(wt);
-                    }
-                }
-                out.add(w);
-            }
-        } catch (Exception e){ e.printStackTrace(); }
-        return out;
+        return JsonStreamCodec.readWallets(sp.getString(KEY_WALLETS, "[]"));
     }
     public void setPendingProfileSync(boolean pending) {
         sp.edit().putBoolean(KEY_PENDING_PROFILE_SYNC, pending).apply();
@@ -225,54 +467,17 @@ public class PrefsManager {
     }
 
     public void saveWallets(List<Wallet> wallets) {
-        JSONArray arr = new JSONArray();
-        if (wallets != null) {
-            for (Wallet w : wallets) {
-                if (w == null) continue;
-                JSONObject jw = new JSONObject();
-                try {
-                    jw.put("id", w.id);
-                    jw.put("name", w.name);
-                    jw.put("balance", w.balance);
-                    JSONArray txArr = new JSONArray();
-                    for (WalletTransaction wt : w.transactions) {
-                        JSONObject jtx = new JSONObject();
-                        jtx.put("id", wt.id);
-                        jtx.put("amount", wt.amount);
-                        jtx.put("note", wt.note);
-                        jtx.put("epochMillis", wt.epochMillis);
-                        if (wt.title != null) jtx.put("title", wt.title);
-                        if (wt.source != null) jtx.put("source", wt.source);
-                        if (wt.date != null) jtx.put("date", wt.date);
-                        txArr.put(jtx);
-                    }
-                    jw.put("transactions", txArr);
-                } catch (Exception ex){ ex.printStackTrace(); }
-                arr.put(jw);
-            }
-        }
-        sp.edit().putString(KEY_WALLETS, arr.toString()).apply();
+        sp.edit().putString(KEY_WALLETS, JsonStreamCodec.writeWallets(wallets)).apply();
     }
 
     /* ---------- Weekly Aggregates ---------- */
 
+    /**
+     * Calendar-week series per type (see WeeklyRollup), kept in sync with every write.
+     */
     public List<WeeklyAggregate> getWeeklyAggregates() {
-        String raw = sp.getString(KEY_WEEKLY, "[]");
-        List<WeeklyAggregate> out = new ArrayList<>();
-        try {
-            JSONArray arr = new JSONArray(raw);
-            for (int i=0;i<arr.length();i++) {
-                JSONObject jw = arr.getJSONObject(i);
-                WeeklyAggregate wa = new WeeklyAggregate();
-                wa.weekIndex = jw.optInt("weekIndex");
-                wa.amountMinor = Math.round(jw.optDouble("amount", 0.0));
-                String t = jw.optString("type", TransactionType.EXPENSE.name());
-                try { wa.type = TransactionType.valueOf(t); } catch (Exception e) { wa.type = TransactionType.EXPENSE; }
-                wa.label = jw.optString("label", null);
-                out.add(wa);
-            }
-        } catch (Exception e){ e.printStackTrace(); }
-        return out;
+        ensureOpen();
+        return weeklyRollup.all();
     }
 
     // Check if first launch
@@ -292,7 +497,10 @@ public class PrefsManager {
         CurrencyUtil.setCode(code);
     }
 
-    public void clearAllDomainDataPreserveUser() {
+    public synchronized void clearAllDomainDataPreserveUser() {
+        ensureOpen();
+        store.clear();
+        invalidateTransactions();
         sp.edit()
                 .remove(KEY_TX)
                 .remove(KEY_WALLETS)
@@ -302,61 +510,41 @@ public class PrefsManager {
                 .remove(KEY_SEED_VERSION)
                 .remove(KEY_PENDING_PROFILE_SYNC)
                 .apply();
+        rebuildLedgerIndexes(Collections.emptyList());
     }
 
-    public void clearEverythingIncludingUser() {
-        sp.edit().clear().apply();
+    public synchronized void clearEverythingIncludingUser() {
+        ensureOpen();
+        store.clear();
+        invalidateTransactions();
+        synchronized (passwordLock) {
+            passwordGeneration++; // the stored password goes with the rest
+            ids.keepState(sp.edit().clear()
+                    .putBoolean(KEY_TX_STORE_MIGRATED, true)
+                    .putBoolean(KEY_LIMIT_USAGE_MIGRATED, true)).apply();
+        }
+        rebuildLedgerIndexes(Collections.emptyList());
     }
     public void savePasswordHashAndSalt(String hash, String salt) {
         if (hash == null || salt == null) return;
-        sp.edit()
-                .putString(KEY_PWD_HASH, hash)
-                .putString(KEY_PWD_SALT, salt)
-                .apply();
+        synchronized (passwordLock) {
+            passwordGeneration++;
+            sp.edit()
+                    .putString(KEY_PWD_HASH, hash)
+                    .putString(KEY_PWD_SALT, salt)
+                    .remove(KEY_PWD_ITERATIONS) // no count given: treated as legacy
+                    .apply();
+        }
     }
     public String getCurrency() {
         String c = sp.getString(KEY_CURRENCY_CODE, null);
         return c;
     }
-    public void saveWeeklyAggregates(List<WeeklyAggregate> list) {
-        JSONArray arr = new JSONArray();
-        if (list != null) {
-            for (WeeklyAggregate wa : list) {
-                if (wa == null) continue;
-                JSONObject o = new JSONObject();
-                try {
-                    o.put("weekIndex", wa.weekIndex);
-                    o.put("amount", wa.amountMinor);
-                    o.put("type", wa.type != null ? wa.type.name() : TransactionType.EXPENSE.name());
-                    if (wa.label != null) o.put("label", wa.label);
-                } catch (Exception e){ e.printStackTrace(); }
-                arr.put(o);
-            }
-        }
-        sp.edit().putString(KEY_WEEKLY, arr.toString()).apply();
-    }
 
     /* ---------- Buying Limits ---------- */
 
     public List<BuyingLimit> getBuyingLimits() {
-        String raw = sp.getString(KEY_BUYING, "[]");
-        List<BuyingLimit> out = new ArrayList<>();
-        try {
-            JSONArray arr = new JSONArray(raw);
-            for (int i=0;i<arr.length();i++) {
-                JSONObject jb = arr.getJSONObject(i);
-                BuyingLimit b = new BuyingLimit();
-                b.platform = jb.optString("platform","");
-                b.limitAmount = jb.optLong("limitAmount",0);
-                b.usedInPeriod = jb.optLong("usedInPeriod",0);
-                b.createdAtEpoch = jb.optLong("createdAtEpoch", System.currentTimeMillis());
-                b.periodStartMillis = jb.optLong("periodStartMillis", b.createdAtEpoch);
-                String freq = jb.optString("frequency", BuyingLimitFrequency.MONTHLY.name());
-                try { b.frequency = BuyingLimitFrequency.valueOf(freq); } catch (Exception e){ b.frequency = BuyingLimitFrequency.MONTHLY; }
-                out.add(b);
-            }
-        } catch (Exception e){ e.printStackTrace(); }
-        return out;
+        return JsonStreamCodec.readBuyingLimits(sp.getString(KEY_BUYING, "[]"));
     }
 
     public BuyingLimit getBuyingLimit(String platform) {
@@ -367,40 +555,37 @@ public class PrefsManager {
         return null;
     }
 
-    public void upsertBuyingLimit(BuyingLimit limit) {
-        if (limit == null || limit.platform == null) return;
-        List<BuyingLimit> list = getBuyingLimits();
-        boolean updated = false;
-        for (int i=0;i<list.size();i++) {
-            BuyingLimit b = list.get(i);
-            if (b != null && b.platform.equalsIgnoreCase(limit.platform)) {
-                list.set(i, limit);
-                updated = true;
-                break;
-            }
-        }
-        if (!updated) list.add(limit);
-        saveBuyingLimits(list);
+    /**
+     * Sets a platform's limit amount and frequency. Usage and the period are owned by
+     * LimitUsageIndex, which restarts them for a new limit or a new frequency.
+     */
+    public void upsertBuyingLimit(String platform, long limitAmount, BuyingLimitFrequency frequency) {
+        ensureOpen();
+        if (platform == null || platform.trim().isEmpty() || frequency == null) return;
+        limitUsage.setLimit(platform, limitAmount, frequency);
     }
 
     public void saveBuyingLimits(List<BuyingLimit> list) {
-        JSONArray arr = new JSONArray();
-        if (list != null) {
-            for (BuyingLimit b : list) {
-                if (b == null) continue;
-                JSONObject jb = new JSONObject();
-                try {
-                    jb.put("platform", b.platform);
-                    jb.put("limitAmount", b.limitAmount);
-                    jb.put("usedInPeriod", b.usedInPeriod);
-                    jb.put("frequency", b.frequency != null ? b.frequency.name() : BuyingLimitFrequency.MONTHLY.name());
-                    jb.put("createdAtEpoch", b.createdAtEpoch);
-                    jb.put("periodStartMillis", b.periodStartMillis);
-                } catch (Exception ex){ ex.printStackTrace(); }
-                arr.put(jb);
-            }
-        }
-        sp.edit().putString(KEY_BUYING, arr.toString()).apply();
+        sp.edit().putString(KEY_BUYING, JsonStreamCodec.writeBuyingLimits(list)).apply();
+        limitUsage.invalidate();
+    }
+
+    // Set once LimitUsageIndex has recounted the limits saved by older versions.
+    boolean isLimitUsageMigrated() {
+        return sp.getBoolean(KEY_LIMIT_USAGE_MIGRATED, false);
+    }
+
+    void setLimitUsageMigrated() {
+        sp.edit().putBoolean(KEY_LIMIT_USAGE_MIGRATED, true).apply();
+    }
+
+    /**
+     * Spend against a platform's limit in its current period (major units), rolling the period
+     * over when it has ended. O(1) except right after a rollover.
+     */
+    public long getLimitUsage(String platform) {
+        ensureOpen();
+        return limitUsage.usedInPeriod(platform);
     }
 
     /* ---------- Seed Version ---------- */
@@ -26,9 +26,6 @@ import java.util.List;
 
 public class ProfileActivity extends AppCompatActivity {
 
-    public static final String ACTION_DOMAIN_DATA_CLEARED =
-            "com.moneytrackultra.cashbook.ACTION_DOMAIN_DATA_CLEARED";
-
     private ImageButton btnBack;
     private TextView tvTitle;
     private ImageView ivAvatar;
@@ -231,12 +228,15 @@ public class ProfileActivity extends AppCompatActivity {
         new AlertDialog.Builder(this)
                 .setTitle("Clear All Data")
                 .setMessage("This will remove all local transactions, wallets, weekly stats, buying limits, and currency preference. Your account will remain. Continue?")
-                .setPositiveButton("Clear", (d, w) -> {
-                    PrefsManager.get().clearAllDomainDataPreserveUser();
-                    sendBroadcast(new Intent(ACTION_DOMAIN_DATA_CLEARED));
-                    Toast.makeText(this, "Data cleared", Toast.LENGTH_SHORT).show();
-                    refreshRows();
-                })
+                .setPositiveButton("Clear", (d, w) ->
+                        // Open screens are told through RepositoryChange.Kind.CLEARED.
+                        OfflineRepository.get().write(this, r -> {
+                            r.clearDomainData();
+                            return null;
+                        }, ignored -> {
+                            Toast.makeText(this, "Data cleared", Toast.LENGTH_SHORT).show();
+                            refreshRows();
+                        }))
                 .setNegativeButton("Cancel", null)
                 .show();
     }
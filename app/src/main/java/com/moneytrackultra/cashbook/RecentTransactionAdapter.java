@@ -8,27 +8,32 @@ import android.widget.TextView;
 import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
 import java.util.List;
-import java.util.Locale;
 
 public class RecentTransactionAdapter extends RecyclerView.Adapter<RecentTransactionAdapter.VH> {
 
     public interface OnLongDelete { void onDelete(Transaction t); }
 
-    private List<Transaction> data;
+    private final TransactionListDiffer data = new TransactionListDiffer(this, false);
     private final OnLongDelete delete;
-    private final SimpleDateFormat fmt = new SimpleDateFormat("dd MMM yyyy HH:mm", Locale.US);
 
     public RecentTransactionAdapter(List<Transaction> data, OnLongDelete delete) {
-        this.data = data;
         this.delete = delete;
+        setHasStableIds(true);
+        this.data.submit(data);
     }
 
-    public void submit(List<Transaction> newData) {
-        this.data = newData;
-        notifyDataSetChanged();
+    /**
+     * Diffed against the current rows in the background; only changed rows rebind.
+     * {@code onCommitted} (may be null) runs once the adapter has been notified.
+     */
+    public void submit(List<Transaction> newData, Runnable onCommitted) {
+        data.submit(newData, onCommitted);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return data.get(position).id;
     }
 
     @NonNull
@@ -42,12 +47,11 @@ public class RecentTransactionAdapter extends RecyclerView.Adapter<RecentTransac
     @Override
     public void onBindViewHolder(@NonNull VH h, int position) {
         Transaction t = data.get(position);
-        String amount = CurrencyUtil.formatMinor(t.getAmountMinor());
-        String signed = (t.type == TransactionType.EXPENSE ? "- " : "+ ") + amount;
+        String signed = CurrencyUtil.formatMinor(t.type == TransactionType.EXPENSE ? "- " : "+ ", t.getAmountMinor());
         h.title.setText(t.title.isEmpty()
                 ? (t.type == TransactionType.INCOME ? "Income" : "Expense")
                 : t.title);
-        h.subtitle.setText(signed + "  •  " + fmt.format(new Date(t.epochMillis)));
+        h.subtitle.setText(signed + "  •  " + DateLabels.get().dayTime(t.epochMillis, t.epochDay));
 
         int color = h.itemView.getResources().getColor(
                 t.type == TransactionType.EXPENSE ? R.color.expenseRed : R.color.incomeGreen
@@ -62,7 +66,7 @@ public class RecentTransactionAdapter extends RecyclerView.Adapter<RecentTransac
 
     @Override
     public int getItemCount() {
-        return data == null ? 0 : data.size();
+        return data.size();
     }
 
     static class VH extends RecyclerView.ViewHolder {
@@ -0,0 +1,52 @@
+package com.moneytrackultra.cashbook;
+
+/**
+ * One change published by OfflineRepository to its observers (always on the main thread).
+ *
+ * Delivered after PrefsManager's indexes were updated, so totals / rollups read from an
+ * observer already include the change.
+ */
+public final class RepositoryChange {
+
+    public enum Kind {
+        /** One transaction added; {@link #transaction} is the stored row. */
+        INSERTED,
+        /** One transaction removed; {@link #transaction} is the removed row. */
+        DELETED,
+        /** All domain data (transactions and buying limits) was cleared. */
+        CLEARED,
+        /** Transactions were replaced or reloaded in bulk; reload everything. */
+        RELOADED,
+        /** A buying limit was added or changed; {@link #platform} names it. */
+        LIMITS_CHANGED
+    }
+
+    public final Kind kind;
+    public final long id;                  // transaction id for INSERTED / DELETED, else 0
+    public final Transaction transaction;  // shared instance, do not modify
+    public final String platform;
+
+    private RepositoryChange(Kind kind, Transaction transaction, String platform) {
+        this.kind = kind;
+        this.transaction = transaction;
+        this.id = transaction == null ? 0 : transaction.id;
+        this.platform = platform;
+    }
+
+    static RepositoryChange inserted(Transaction t) { return new RepositoryChange(Kind.INSERTED, t, null); }
+
+    static RepositoryChange deleted(Transaction t) { return new RepositoryChange(Kind.DELETED, t, null); }
+
+    static RepositoryChange cleared() { return new RepositoryChange(Kind.CLEARED, null, null); }
+
+    static RepositoryChange reloaded() { return new RepositoryChange(Kind.RELOADED, null, null); }
+
+    static RepositoryChange limitsChanged(String platform) {
+        return new RepositoryChange(Kind.LIMITS_CHANGED, null, platform);
+    }
+
+    /** True for changes that affect transaction lists (not only buying limits). */
+    public boolean touchesTransactions() {
+        return kind != Kind.LIMITS_CHANGED;
+    }
+}
@@ -0,0 +1,385 @@
+package com.moneytrackultra.cashbook;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * TransactionStore on the platform SQLite (see CashbookDatabase for the schema).
+ *
+ * Writes go through statements compiled once and reused. Filtered reads hit the
+ * epoch / type / source / category indexes, so they scale with the number of matching rows.
+ * Single-row writes update category_totals and weekly_totals in the same DB transaction.
+ */
+class SqliteTransactionStore implements TransactionStore {
+
+    private static final String T = CashbookDatabase.T_TRANSACTIONS;
+    private static final String CT = CashbookDatabase.T_CATEGORY_TOTALS;
+    private static final String WT = CashbookDatabase.T_WEEKLY_TOTALS;
+    private static final String COLUMNS =
+            "tx_id, type, amount_minor, amount, epoch_millis, title, source, date, epoch_day";
+    private static final String NEWEST_FIRST = " ORDER BY epoch_millis DESC, tx_id DESC";
+
+    private final CashbookDatabase helper;
+
+    // Compiled lazily on first use; guarded by "this".
+    private SQLiteStatement insertStmt;
+    private SQLiteStatement deleteStmt;
+    private SQLiteStatement categoryAddStmt;
+    private SQLiteStatement categoryNewStmt;
+    private SQLiteStatement categoryRemoveStmt;
+    private SQLiteStatement categoryDropStmt;
+    private SQLiteStatement weekAddStmt;
+    private SQLiteStatement weekNewStmt;
+    private SQLiteStatement weekDropStmt;
+
+    SqliteTransactionStore(CashbookDatabase helper) {
+        this.helper = helper;
+    }
+
+    private SQLiteDatabase db() {
+        return helper.getWritableDatabase();
+    }
+
+    /* ---------- Writes ---------- */
+
+    @Override
+    public synchronized void insert(Transaction t) {
+        if (t == null) return;
+        SQLiteDatabase db = db();
+        db.beginTransaction();
+        try {
+            bindInsert(t).executeInsert();
+            addToCategory(db, t);
+            addToWeek(db, t, 1);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    @Override
+    public synchronized Transaction delete(long id) {
+        SQLiteDatabase db = db();
+        db.beginTransaction();
+        try {
+            Transaction removed = null;
+            long rowId = -1;
+            try (Cursor c = db.rawQuery("SELECT " + COLUMNS + ", _id FROM " + T + " WHERE tx_id = ? LIMIT 1",
+                    new String[]{String.valueOf(id)})) {
+                if (c.moveToFirst()) {
+                    removed = fromRow(c);
+                    rowId = c.getLong(9);
+                }
+            }
+            if (removed != null) {
+                if (deleteStmt == null) {
+                    deleteStmt = db.compileStatement("DELETE FROM " + T + " WHERE _id = ?");
+                }
+                deleteStmt.bindLong(1, rowId);
+                deleteStmt.executeUpdateDelete();
+                removeFromCategory(db, removed);
+                addToWeek(db, removed, -1);
+            }
+            db.setTransactionSuccessful();
+            return removed;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    @Override
+    public synchronized void replaceAll(List<Transaction> list) {
+        SQLiteDatabase db = db();
+        db.beginTransaction();
+        try {
+            db.execSQL("DELETE FROM " + T);
+            if (list != null) {
+                for (Transaction t : list) {
+                    if (t != null) bindInsert(t).executeInsert();
+                }
+            }
+            CashbookDatabase.rebuildCategoryTotals(db);
+            CashbookDatabase.rebuildWeeklyTotals(db);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    @Override
+    public synchronized void clear() {
+        SQLiteDatabase db = db();
+        db.beginTransaction();
+        try {
+            db.execSQL("DELETE FROM " + T);
+            db.execSQL("DELETE FROM " + CT);
+            db.execSQL("DELETE FROM " + WT);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private SQLiteStatement bindInsert(Transaction t) {
+        if (insertStmt == null) {
+            insertStmt = db().compileStatement("INSERT INTO " + T + " (" + COLUMNS + ", category)"
+                    + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+        }
+        SQLiteStatement s = insertStmt;
+        s.clearBindings();
+        s.bindLong(1, t.id);
+        s.bindLong(2, CashbookDatabase.typeCode(t.type));
+        s.bindLong(3, t.getAmountMinor());
+        s.bindLong(4, t.amount);
+        s.bindLong(5, t.epochMillis);
+        bindNullable(s, 6, t.title);
+        bindNullable(s, 7, t.source);
+        bindNullable(s, 8, t.date);
+        s.bindLong(9, t.epochDay);
+        s.bindString(10, t.category());
+        return s;
+    }
+
+    /* ---------- Category totals ---------- */
+
+    private void addToCategory(SQLiteDatabase db, Transaction t) {
+        if (categoryAddStmt == null) {
+            categoryAddStmt = db.compileStatement("UPDATE " + CT + " SET"
+                    + " income_minor = income_minor + ?, expense_minor = expense_minor + ?,"
+                    + " tx_count = tx_count + 1, last_epoch = MAX(last_epoch, ?)"
+                    + " WHERE category = ?");
+            categoryNewStmt = db.compileStatement("INSERT INTO " + CT
+                    + " (income_minor, expense_minor, tx_count, last_epoch, category)"
+                    + " VALUES (?, ?, 1, ?, ?)");
+        }
+        bindCategoryDelta(categoryAddStmt, t);
+        if (categoryAddStmt.executeUpdateDelete() == 0) {
+            bindCategoryDelta(categoryNewStmt, t);
+            categoryNewStmt.executeInsert();
+        }
+    }
+
+    // Runs after the row itself is gone, so last_epoch can be re-read from the category index.
+    private void removeFromCategory(SQLiteDatabase db, Transaction t) {
+        if (categoryRemoveStmt == null) {
+            categoryRemoveStmt = db.compileStatement("UPDATE " + CT + " SET"
+                    + " income_minor = income_minor - ?, expense_minor = expense_minor - ?,"
+                    + " tx_count = tx_count - 1,"
+                    + " last_epoch = IFNULL((SELECT MAX(epoch_millis) FROM " + T
+                    + " WHERE category = " + CT + ".category), 0)"
+                    + " WHERE category = ?");
+            categoryDropStmt = db.compileStatement("DELETE FROM " + CT
+                    + " WHERE category = ? AND tx_count <= 0");
+        }
+        long amt = t.getAmountMinor();
+        boolean income = t.type == TransactionType.INCOME;
+        categoryRemoveStmt.bindLong(1, income ? amt : 0);
+        categoryRemoveStmt.bindLong(2, income ? 0 : amt);
+        categoryRemoveStmt.bindString(3, t.category());
+        categoryRemoveStmt.executeUpdateDelete();
+        categoryDropStmt.bindString(1, t.category());
+        categoryDropStmt.executeUpdateDelete();
+    }
+
+    // Binds (income, expense, epoch, category) - the order shared by the add statements.
+    private static void bindCategoryDelta(SQLiteStatement s, Transaction t) {
+        long amt = t.getAmountMinor();
+        boolean income = t.type == TransactionType.INCOME;
+        s.bindLong(1, income ? amt : 0);
+        s.bindLong(2, income ? 0 : amt);
+        s.bindLong(3, t.epochMillis);
+        s.bindString(4, t.category());
+    }
+
+    /* ---------- Weekly totals ---------- */
+
+    // sign is +1 for an insert, -1 for a delete; the week's row goes when its count reaches 0.
+    private void addToWeek(SQLiteDatabase db, Transaction t, int sign) {
+        if (weekAddStmt == null) {
+            weekAddStmt = db.compileStatement("UPDATE " + WT + " SET"
+                    + " amount_minor = amount_minor + ?, tx_count = tx_count + ?"
+                    + " WHERE type = ? AND week_start = ?");
+            weekNewStmt = db.compileStatement("INSERT INTO " + WT
+                    + " (amount_minor, tx_count, type, week_start) VALUES (?, ?, ?, ?)");
+            weekDropStmt = db.compileStatement("DELETE FROM " + WT
+                    + " WHERE type = ? AND week_start = ? AND tx_count <= 0");
+        }
+        int type = CashbookDatabase.typeCode(t.type);
+        int week = WeeklyRollup.weekStartOf(t.epochDay);
+        weekAddStmt.bindLong(1, sign * t.getAmountMinor());
+        weekAddStmt.bindLong(2, sign);
+        weekAddStmt.bindLong(3, type);
+        weekAddStmt.bindLong(4, week);
+        if (weekAddStmt.executeUpdateDelete() == 0) {
+            if (sign < 0) return;
+            weekNewStmt.bindLong(1, t.getAmountMinor());
+            weekNewStmt.bindLong(2, 1);
+            weekNewStmt.bindLong(3, type);
+            weekNewStmt.bindLong(4, week);
+            weekNewStmt.executeInsert();
+        } else if (sign < 0) {
+            weekDropStmt.bindLong(1, type);
+            weekDropStmt.bindLong(2, week);
+            weekDropStmt.executeUpdateDelete();
+        }
+    }
+
+    private static void bindNullable(SQLiteStatement s, int index, String value) {
+        if (value == null) s.bindNull(index); else s.bindString(index, value);
+    }
+
+    /* ---------- Reads ---------- */
+
+    @Override
+    public List<Transaction> loadAll() {
+        return query("SELECT " + COLUMNS + " FROM " + T, null);
+    }
+
+    @Override
+    public List<Transaction> queryByType(TransactionType type, String source, String date) {
+        StringBuilder sql = new StringBuilder("SELECT ").append(COLUMNS).append(" FROM ").append(T)
+                .append(" WHERE type = ?");
+        List<String> args = new ArrayList<>(3);
+        args.add(String.valueOf(CashbookDatabase.typeCode(type)));
+        if (source != null) {
+            sql.append(" AND source = ? COLLATE NOCASE");
+            args.add(source);
+        }
+        if (date != null) {
+            sql.append(" AND date = ? COLLATE NOCASE");
+            args.add(date);
+        }
+        sql.append(NEWEST_FIRST);
+        return query(sql.toString(), args.toArray(new String[0]));
+    }
+
+    @Override
+    public List<Transaction> queryRange(long fromMillis, long toMillis) {
+        return query("SELECT " + COLUMNS + " FROM " + T
+                        + " WHERE epoch_millis >= ? AND epoch_millis < ?" + NEWEST_FIRST,
+                new String[]{String.valueOf(fromMillis), String.valueOf(toMillis)});
+    }
+
+    // Both pages walk idx_tx_epoch_id from the key; the epoch bound keeps it a range scan.
+    @Override
+    public List<Transaction> pageOlder(long epochMillis, long id, int limit) {
+        String ms = String.valueOf(epochMillis);
+        return query("SELECT " + COLUMNS + " FROM " + T
+                        + " WHERE epoch_millis <= ? AND (epoch_millis < ? OR tx_id < ?)"
+                        + NEWEST_FIRST + " LIMIT ?",
+                new String[]{ms, ms, String.valueOf(id), String.valueOf(limit)});
+    }
+
+    @Override
+    public List<Transaction> pageNewer(long epochMillis, long id, int limit) {
+        String ms = String.valueOf(epochMillis);
+        List<Transaction> out = query("SELECT " + COLUMNS + " FROM " + T
+                        + " WHERE epoch_millis >= ? AND (epoch_millis > ? OR tx_id > ?)"
+                        + " ORDER BY epoch_millis ASC, tx_id ASC LIMIT ?",
+                new String[]{ms, ms, String.valueOf(id), String.valueOf(limit)});
+        Collections.reverse(out);
+        return out;
+    }
+
+    // Matches LimitUsageIndex.normalize: TRIM drops spaces, NOCASE folds ASCII case.
+    @Override
+    public long sumExpenseMajorBySource(String source) {
+        if (source == null) return 0;
+        try (Cursor c = db().rawQuery("SELECT TOTAL(ABS(amount)) FROM " + T
+                        + " WHERE TRIM(source) = ? COLLATE NOCASE AND type = ?",
+                new String[]{LimitUsageIndex.normalize(source), String.valueOf(CashbookDatabase.TYPE_EXPENSE)})) {
+            return c.moveToFirst() ? (long) c.getDouble(0) : 0;
+        }
+    }
+
+    @Override
+    public long sumExpenseMajorBySource(String source, long fromMillis, long toMillis) {
+        if (source == null) return 0;
+        try (Cursor c = db().rawQuery("SELECT TOTAL(ABS(amount)) FROM " + T
+                        + " WHERE TRIM(source) = ? COLLATE NOCASE AND type = ?"
+                        + " AND epoch_millis >= ? AND epoch_millis < ?",
+                new String[]{LimitUsageIndex.normalize(source), String.valueOf(CashbookDatabase.TYPE_EXPENSE),
+                        String.valueOf(fromMillis), String.valueOf(toMillis)})) {
+            return c.moveToFirst() ? (long) c.getDouble(0) : 0;
+        }
+    }
+
+    // category_totals is written in the same DB transaction as the rows, so this always matches them.
+    @Override
+    public LedgerTotals ledgerTotals() {
+        try (Cursor c = db().rawQuery("SELECT IFNULL(SUM(income_minor), 0), IFNULL(SUM(expense_minor), 0),"
+                + " IFNULL(SUM(tx_count), 0) FROM " + CT, null)) {
+            return c.moveToFirst()
+                    ? new LedgerTotals(c.getLong(0), c.getLong(1), c.getLong(2))
+                    : LedgerTotals.EMPTY;
+        }
+    }
+
+    @Override
+    public List<WeeklyAggregate> weeklyTotals() {
+        List<WeeklyAggregate> out = new ArrayList<>();
+        try (Cursor c = db().rawQuery("SELECT type, week_start, amount_minor, tx_count FROM " + WT, null)) {
+            while (c.moveToNext()) {
+                WeeklyAggregate w = new WeeklyAggregate();
+                w.type = CashbookDatabase.typeFromCode(c.getInt(0));
+                w.weekStartDay = c.getInt(1);
+                w.amountMinor = c.getLong(2);
+                w.txCount = c.getInt(3);
+                out.add(w);
+            }
+        }
+        return out;
+    }
+
+    @Override
+    public List<BalanceAggregate> categoryTotals() {
+        List<BalanceAggregate> out = new ArrayList<>();
+        try (Cursor c = db().rawQuery("SELECT category, income_minor, expense_minor, last_epoch FROM " + CT
+                + " ORDER BY last_epoch DESC", null)) {
+            while (c.moveToNext()) {
+                BalanceAggregate a = new BalanceAggregate();
+                a.key = c.getString(0);
+                a.incomeMinor = c.getLong(1);
+                a.expenseMinor = c.getLong(2);
+                a.lastEpochMillis = c.getLong(3);
+                out.add(a);
+            }
+        }
+        return out;
+    }
+
+    @Override
+    public List<Transaction> queryByCategory(String category) {
+        if (category == null) return new ArrayList<>();
+        return query("SELECT " + COLUMNS + " FROM " + T + " WHERE category = ?" + NEWEST_FIRST,
+                new String[]{category});
+    }
+
+    private List<Transaction> query(String sql, String[] args) {
+        List<Transaction> out = new ArrayList<>();
+        try (Cursor c = db().rawQuery(sql, args)) {
+            while (c.moveToNext()) out.add(fromRow(c));
+        }
+        return out;
+    }
+
+    // Column order matches COLUMNS.
+    private static Transaction fromRow(Cursor c) {
+        Transaction t = new Transaction(
+                c.getLong(0),
+                CashbookDatabase.typeFromCode(c.getInt(1)),
+                c.getLong(2),
+                c.getLong(4),
+                c.getInt(8),
+                c.isNull(5) ? null : c.getString(5),
+                c.isNull(6) ? null : c.getString(6),
+                c.isNull(7) ? null : c.getString(7));
+        t.amount = c.getLong(3);
+        return t;
+    }
+}
@@ -0,0 +1,143 @@
+package com.moneytrackultra.cashbook;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-hour and per-day income / expense rollups (minor units) for the dashboard chart.
+ *
+ * Hour cells are keyed by absolute hour (epochMillis / 1h), day cells by Transaction.epochDay.
+ * Only the cells a chart can show are retained: the last MAX_HOURS hours and MAX_DAYS days
+ * (plus anything dated in the future); older cells are pruned as time moves on. A chart is
+ * therefore filled from at most MAX_DAYS lookups whatever the size of the history.
+ *
+ * In-memory only. PrefsManager builds it lazily from a range query covering horizonStart(now).
+ */
+final class TimeRollups implements LedgerIndex {
+
+    static final long HOUR_MILLIS = 60L * 60L * 1000L;
+    static final int MAX_HOURS = 24;
+    static final int MAX_DAYS = 31;
+
+    private static final int INCOME = 0;
+    private static final int EXPENSE = 1;
+
+    private final Map<Long, long[]> hours = new HashMap<>();
+    private final Map<Long, long[]> days = new HashMap<>();
+
+    private boolean loaded;
+
+    synchronized boolean isCurrent() {
+        return loaded;
+    }
+
+    /** Oldest timestamp any retained cell can hold; rebuild input must cover [this, +inf). */
+    static long horizonStart(long now) {
+        ZoneId z = ZoneId.systemDefault();
+        // One extra day: epochDay was fixed in the zone the row was written in.
+        LocalDate first = Instant.ofEpochMilli(now).atZone(z).toLocalDate().minusDays(MAX_DAYS);
+        return Math.min(first.atStartOfDay(z).toInstant().toEpochMilli(),
+                (Math.floorDiv(now, HOUR_MILLIS) - (MAX_HOURS - 1)) * HOUR_MILLIS);
+    }
+
+    /* ---------- LedgerIndex ---------- */
+
+    @Override
+    public synchronized void onInserted(Transaction t) {
+        if (loaded) add(t, 1);
+    }
+
+    @Override
+    public synchronized void onDeleted(Transaction t) {
+        if (loaded) add(t, -1);
+    }
+
+    @Override
+    public synchronized void rebuild(List<Transaction> all) {
+        hours.clear();
+        days.clear();
+        loaded = true;
+        if (all != null) {
+            for (Transaction t : all) add(t, 1);
+        }
+        prune(System.currentTimeMillis());
+    }
+
+    @Override
+    public boolean needsRebuild() {
+        return false; // built on first read instead of at startup
+    }
+
+    /* ---------- Reads ---------- */
+
+    /**
+     * Fills one cell per hour, oldest first, ending with the hour containing {@code now}.
+     * Arrays must have the same length, at most MAX_HOURS.
+     */
+    synchronized void hourly(long now, long[] income, long[] expense) {
+        prune(now);
+        long last = Math.floorDiv(now, HOUR_MILLIS);
+        fill(hours, last - (income.length - 1), income, expense);
+    }
+
+    /**
+     * Fills one cell per local day, oldest first, ending with today.
+     * Arrays must have the same length, at most MAX_DAYS.
+     */
+    synchronized void daily(long now, long[] income, long[] expense) {
+        prune(now);
+        long last = dayKey(now);
+        fill(days, last - (income.length - 1), income, expense);
+    }
+
+    private static void fill(Map<Long, long[]> cells, long firstKey, long[] income, long[] expense) {
+        for (int i = 0; i < income.length; i++) {
+            long[] c = cells.get(firstKey + i);
+            income[i] = c == null ? 0 : c[INCOME];
+            expense[i] = c == null ? 0 : c[EXPENSE];
+        }
+    }
+
+    /* ---------- Maintenance ---------- */
+
+    private void add(Transaction t, int sign) {
+        if (t == null) return;
+        int side = t.type == TransactionType.INCOME ? INCOME : EXPENSE;
+        long amt = sign * t.getAmountMinor();
+        bump(hours, Math.floorDiv(t.epochMillis, HOUR_MILLIS), side, amt, sign);
+        bump(days, t.epochDay, side, amt, sign);
+    }
+
+    private static void bump(Map<Long, long[]> cells, long key, int side, long amt, int sign) {
+        long[] c = cells.get(key);
+        if (c == null) {
+            if (sign < 0) return; // already pruned
+            c = new long[3];
+            cells.put(key, c);
+        }
+        c[side] += amt;
+        c[2] += sign; // contributing rows
+        if (c[2] <= 0) cells.remove(key);
+    }
+
+    private void prune(long now) {
+        prune(hours, Math.floorDiv(now, HOUR_MILLIS) - (MAX_HOURS - 1));
+        prune(days, dayKey(now) - (MAX_DAYS - 1));
+    }
+
+    private static void prune(Map<Long, long[]> cells, long oldestKey) {
+        Iterator<Long> it = cells.keySet().iterator();
+        while (it.hasNext()) {
+            if (it.next() < oldestKey) it.remove();
+        }
+    }
+
+    private static long dayKey(long epochMillis) {
+        return EpochDays.of(epochMillis);
+    }
+}
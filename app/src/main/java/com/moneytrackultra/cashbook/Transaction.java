@@ -32,6 +32,7 @@ public class Transaction {
     public String title;       // user-visible name / category
     public String source;      // platform / merchant (optional)
     public String date;        // optional human string ("yyyy-MM-dd" or friendly); NOT the authority for time
+    public int epochDay;       // local calendar day (LocalDate.toEpochDay) fixed at write time; use for grouping
 
     // -------- Constants / Defaults --------
     private static final int MINOR_SCALE = 100;             // factor: 1 major = 100 minor (override if needed)
@@ -54,6 +55,28 @@ public class Transaction {
         this.type = type;
         setAmountMinor(amountMinor); // ensures sync
         this.epochMillis = epochMillis;
+        this.epochDay = EpochDays.of(epochMillis);
+        this.title = title;
+        this.source = source;
+        this.date = date;
+    }
+
+    /**
+     * Store-side constructor: epochDay was resolved when the row was written.
+     */
+    Transaction(long id,
+                TransactionType type,
+                long amountMinor,
+                long epochMillis,
+                int epochDay,
+                String title,
+                String source,
+                String date) {
+        this.id = id;
+        this.type = type;
+        setAmountMinor(amountMinor);
+        this.epochMillis = epochMillis;
+        this.epochDay = epochDay;
         this.title = title;
         this.source = source;
         this.date = date;
@@ -170,6 +193,7 @@ public class Transaction {
                 this.source,
                 this.date
         );
+        t.epochDay = this.epochDay;
         return t;
     }
 
@@ -193,6 +217,7 @@ public class Transaction {
 
     public Transaction withEpoch(long newEpochMillis) {
         this.epochMillis = newEpochMillis;
+        this.epochDay = EpochDays.of(newEpochMillis);
         return this;
     }
 
@@ -221,6 +246,7 @@ public class Transaction {
                 ", amountMinor=" + amountMinor +
                 ", amount(legacy)=" + amount +
                 ", epochMillis=" + epochMillis +
+                ", epochDay=" + epochDay +
                 ", title='" + title + '\'' +
                 ", source='" + source + '\'' +
                 ", date='" + date + '\'' +
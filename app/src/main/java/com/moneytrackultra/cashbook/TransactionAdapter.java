@@ -8,7 +8,6 @@ import android.widget.TextView;
 import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -29,23 +28,39 @@ import java.util.List;
  */
 public class TransactionAdapter extends RecyclerView.Adapter<TransactionAdapter.VH> {
 
-    private final List<Transaction> data = new ArrayList<>();
+    private final TransactionListDiffer data = new TransactionListDiffer(this, true);
 
+    public TransactionAdapter() {
+        setHasStableIds(true);
+    }
+
+    /** Diffed against the current rows in the background; only changed rows rebind. */
     public void submit(List<Transaction> list) {
-        data.clear();
-        if (list != null) data.addAll(list);
-        notifyDataSetChanged();
+        data.submit(list);
+    }
+
+    /** Adds one row at its newest-first position; ignored if the id is already listed. */
+    public void insert(Transaction t) {
+        data.insert(t);
+    }
+
+    public void remove(long id) {
+        data.remove(id);
     }
 
     public void clear() {
-        data.clear();
-        notifyDataSetChanged();
+        data.submit(null);
     }
 
     public Transaction getItem(int position) {
         return position >= 0 && position < data.size() ? data.get(position) : null;
     }
 
+    @Override
+    public long getItemId(int position) {
+        return data.get(position).id;
+    }
+
     @NonNull
     @Override
     public VH onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
@@ -98,7 +113,7 @@ public class TransactionAdapter extends RecyclerView.Adapter<TransactionAdapter.
                 boolean income = t.type == TransactionType.INCOME;
                 long raw = Math.abs(t.amount);
                 String prefix = income ? "+ " : "- ";
-                tvAmount.setText(prefix + CurrencyUtil.rupiah(raw));
+                tvAmount.setText(CurrencyUtil.rupiah(prefix, raw));
                 int color = itemView.getContext().getColor(income ? R.color.incomeGreen : R.color.expenseRed);
                 tvAmount.setTextColor(color);
             }
@@ -0,0 +1,91 @@
+package com.moneytrackultra.cashbook;
+
+import android.content.SharedPreferences;
+
+import java.security.SecureRandom;
+
+/**
+ * Monotonic, collision-free 64-bit ids for new transactions.
+ *
+ * Layout (most significant first):
+ *  - 1 bit   always 0 (ids stay positive)
+ *  - 41 bits milliseconds since ID_EPOCH (2024-01-01 UTC, ~69 years of range)
+ *  - 10 bits device id (random per install, persisted)
+ *  - 12 bits sequence within the same millisecond (4096 ids/ms)
+ *
+ * Ids only ever grow, even if the wall clock jumps back: the generator never uses a
+ * timestamp older than its high-water mark and borrows the next millisecond once the
+ * sequence runs out. The high-water mark is persisted ahead of use in RESERVE_MS steps,
+ * so restarts continue above everything already handed out without a write per id. That
+ * write is a synchronous commit(): rows are committed to SQLite at once, so the reservation
+ * must be on disk before any id under it can be.
+ *
+ * All generated ids are far above the old System.currentTimeMillis() ids, so they never
+ * collide with existing data.
+ */
+class TransactionIdGenerator {
+
+    private static final String KEY_HIGH_WATER = "tx_id_high_water_ms";
+    private static final String KEY_DEVICE_BITS = "tx_id_device_bits";
+
+    static final long ID_EPOCH = 1704067200000L; // 2024-01-01T00:00:00Z
+
+    private static final int SEQUENCE_BITS = 12;
+    private static final int DEVICE_BITS = 10;
+    private static final long MAX_SEQUENCE = (1L << SEQUENCE_BITS) - 1;
+    private static final long MAX_DEVICE = (1L << DEVICE_BITS) - 1;
+
+    private static final long RESERVE_MS = 10_000L;
+
+    private final SharedPreferences sp;
+    private final long deviceBits;
+
+    private long lastMs;       // relative to ID_EPOCH
+    private long sequence;
+    private long reservedUntil; // persisted high-water mark, relative to ID_EPOCH
+
+    TransactionIdGenerator(SharedPreferences sp) {
+        this.sp = sp;
+        long device = sp.getLong(KEY_DEVICE_BITS, -1L);
+        if (device < 0 || device > MAX_DEVICE) {
+            device = new SecureRandom().nextInt((int) MAX_DEVICE + 1);
+            sp.edit().putLong(KEY_DEVICE_BITS, device).apply();
+        }
+        this.deviceBits = device;
+        this.reservedUntil = sp.getLong(KEY_HIGH_WATER, 0L);
+        // Resume past anything a previous process could have issued.
+        this.lastMs = reservedUntil;
+        this.sequence = MAX_SEQUENCE;
+    }
+
+    synchronized long next() {
+        long now = System.currentTimeMillis() - ID_EPOCH;
+        if (now > lastMs) {
+            lastMs = now;
+            sequence = 0;
+        } else if (sequence < MAX_SEQUENCE) {
+            sequence++;
+        } else {
+            lastMs++;          // sequence exhausted: borrow the next millisecond
+            sequence = 0;
+        }
+        if (lastMs >= reservedUntil) {
+            reservedUntil = lastMs + RESERVE_MS;
+            sp.edit().putLong(KEY_HIGH_WATER, reservedUntil).commit(); // at most once per RESERVE_MS
+        }
+        return (lastMs << (DEVICE_BITS + SEQUENCE_BITS)) | (deviceBits << SEQUENCE_BITS) | sequence;
+    }
+
+    /**
+     * Adds the device bits and high-water mark to an editor, so a prefs wipe
+     * (clear().apply()) does not reset them.
+     */
+    synchronized SharedPreferences.Editor keepState(SharedPreferences.Editor e) {
+        return e.putLong(KEY_DEVICE_BITS, deviceBits).putLong(KEY_HIGH_WATER, reservedUntil);
+    }
+
+    /** Wall-clock millis embedded in an id produced by this generator. */
+    static long timestampOf(long id) {
+        return (id >>> (DEVICE_BITS + SEQUENCE_BITS)) + ID_EPOCH;
+    }
+}
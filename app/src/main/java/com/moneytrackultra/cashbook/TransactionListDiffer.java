@@ -0,0 +1,115 @@
+package com.moneytrackultra.cashbook;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Backing list for the transaction adapters: every change is diffed off the main thread
+ * (AsyncListDiffer) and only the rows that moved or changed are rebound.
+ *
+ * Rows are matched by Transaction.id, which the adapters also report as their stable id.
+ * insert / remove edit the last submitted list rather than the one on screen, so back-to-back
+ * changes are not lost while an earlier diff is still running.
+ *
+ * Main thread only.
+ */
+final class TransactionListDiffer {
+
+    static final DiffUtil.ItemCallback<Transaction> DIFF = new DiffUtil.ItemCallback<Transaction>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Transaction a, @NonNull Transaction b) {
+            return a.id == b.id;
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Transaction a, @NonNull Transaction b) {
+            return a.type == b.type
+                    && a.getAmountMinor() == b.getAmountMinor()
+                    && a.epochMillis == b.epochMillis
+                    && Objects.equals(a.title, b.title)
+                    && Objects.equals(a.source, b.source)
+                    && Objects.equals(a.date, b.date);
+        }
+    };
+
+    private final RecyclerView.Adapter<?> adapter;
+    private final AsyncListDiffer<Transaction> differ;
+    private List<Transaction> latest = Collections.emptyList();
+
+    /**
+     * @param lastRowAware rebind the old and new last row when the last row changes
+     *                     (for adapters that hide the divider on the last row)
+     */
+    TransactionListDiffer(RecyclerView.Adapter<?> adapter, boolean lastRowAware) {
+        this.adapter = adapter;
+        this.differ = new AsyncListDiffer<>(adapter, DIFF);
+        if (lastRowAware) differ.addListListener(this::rebindLastRows);
+    }
+
+    /** Replaces the list (copied). null or empty clears at once without diffing. */
+    void submit(List<Transaction> list) {
+        submit(list, null);
+    }
+
+    /** Same as submit(List); {@code onCommitted} runs once the adapter has been notified. */
+    void submit(List<Transaction> list, Runnable onCommitted) {
+        latest = list == null || list.isEmpty()
+                ? Collections.emptyList()
+                : Collections.unmodifiableList(new ArrayList<>(list));
+        differ.submitList(latest.isEmpty() ? null : latest, onCommitted);
+    }
+
+    /** Adds one row at its newest-first position; ignored if the id is already listed. */
+    void insert(Transaction t) {
+        if (t == null || indexOf(latest, t.id) >= 0) return;
+        List<Transaction> next = new ArrayList<>(latest.size() + 1);
+        next.addAll(latest);
+        int pos = Collections.binarySearch(next, t, PrefsManager.NEWEST_FIRST);
+        if (pos < 0) pos = -(pos + 1);
+        next.add(pos, t);
+        latest = Collections.unmodifiableList(next);
+        differ.submitList(latest);
+    }
+
+    void remove(long id) {
+        int pos = indexOf(latest, id);
+        if (pos < 0) return;
+        List<Transaction> next = new ArrayList<>(latest);
+        next.remove(pos);
+        latest = Collections.unmodifiableList(next);
+        differ.submitList(latest.isEmpty() ? null : latest);
+    }
+
+    /** Row on screen at {@code position}. */
+    Transaction get(int position) {
+        return differ.getCurrentList().get(position);
+    }
+
+    int size() {
+        return differ.getCurrentList().size();
+    }
+
+    private void rebindLastRows(List<Transaction> previous, List<Transaction> current) {
+        if (previous.isEmpty() || current.isEmpty()) return;
+        Transaction oldLast = previous.get(previous.size() - 1);
+        Transaction newLast = current.get(current.size() - 1);
+        if (oldLast.id == newLast.id) return;
+        int oldPos = indexOf(current, oldLast.id);
+        if (oldPos >= 0) adapter.notifyItemChanged(oldPos);
+        if (indexOf(previous, newLast.id) >= 0) adapter.notifyItemChanged(current.size() - 1);
+    }
+
+    private static int indexOf(List<Transaction> list, long id) {
+        for (int i = 0; i < list.size(); i++) {
+            if (list.get(i).id == id) return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,184 @@
+package com.moneytrackultra.cashbook;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Windowed, keyset-paged view of all transactions (newest first) for long lists.
+ *
+ * Pages of PAGE_SIZE rows are read through OfflineRepository.load(...), keyed on the
+ * (epochMillis, id) of the row at either edge of the window, so each page is an index range
+ * scan however deep the list has been scrolled. At most MAX_PAGES pages are kept: a page
+ * loaded past that drops one at the other edge, which is read again when the user scrolls
+ * back. Memory stays at about MAX_PAGES * PAGE_SIZE rows whatever the size of the history.
+ *
+ * Rows sharing both epochMillis and id (legacy duplicates) may be cut at a page boundary.
+ *
+ * Main thread only. Results and change events reach the main thread in the order the
+ * repository thread produced them, so apply(...) can decide from the current window whether
+ * a changed row belongs in it.
+ */
+final class TransactionPager {
+
+    static final int PAGE_SIZE = 30;
+    static final int MAX_PAGES = 4;
+
+    interface Listener {
+        /**
+         * The window changed. {@code shiftAbove} is the number of rows added (> 0) or dropped
+         * (< 0) above the rows kept from the previous window, so the screen can hold those rows
+         * in place; 0 when nothing moved above them.
+         */
+        void onWindowChanged(List<Transaction> rows, int shiftAbove);
+    }
+
+    private final OfflineRepository repo;
+    private final Object owner;
+    private final Listener listener;
+
+    private final List<Transaction> rows = new ArrayList<>();
+    private boolean hasNewer; // rows above the window were dropped
+    private boolean hasOlder; // rows below the window not loaded yet
+
+    private OfflineRepository.Request firstRequest, olderRequest, newerRequest;
+    private int generation; // bumped by refresh(); older results are ignored
+
+    TransactionPager(OfflineRepository repo, Object owner, Listener listener) {
+        this.repo = repo;
+        this.owner = owner;
+        this.listener = listener;
+    }
+
+    /** Drops the window and loads the newest page. */
+    void refresh() {
+        generation++;
+        cancel(firstRequest);
+        cancel(olderRequest);
+        cancel(newerRequest);
+        olderRequest = newerRequest = null;
+
+        int gen = generation;
+        firstRequest = repo.load(owner,
+                r -> page(r, true, Long.MAX_VALUE, Long.MAX_VALUE),
+                page -> {
+                    firstRequest = null;
+                    if (gen != generation || page == null) return;
+                    rows.clear();
+                    rows.addAll(page);
+                    hasNewer = false;
+                    hasOlder = page.size() == PAGE_SIZE;
+                    listener.onWindowChanged(snapshot(), 0);
+                });
+    }
+
+    /** Loads the page below the window, if any and not already loading. */
+    void loadOlder() {
+        if (!hasOlder || rows.isEmpty() || busy(firstRequest) || busy(olderRequest)) return;
+        Transaction last = rows.get(rows.size() - 1);
+        int gen = generation;
+        olderRequest = repo.load(owner,
+                r -> page(r, true, last.epochMillis, last.id),
+                page -> {
+                    olderRequest = null;
+                    if (gen != generation || page == null) return;
+                    rows.addAll(page);
+                    hasOlder = page.size() == PAGE_SIZE;
+                    int excess = Math.max(0, rows.size() - MAX_PAGES * PAGE_SIZE);
+                    if (excess > 0) {
+                        rows.subList(0, excess).clear();
+                        hasNewer = true;
+                    }
+                    listener.onWindowChanged(snapshot(), -excess);
+                });
+    }
+
+    /** Loads the page above the window when rows there were dropped earlier. */
+    void loadNewer() {
+        if (!hasNewer || rows.isEmpty() || busy(firstRequest) || busy(newerRequest)) return;
+        Transaction first = rows.get(0);
+        int gen = generation;
+        newerRequest = repo.load(owner,
+                r -> page(r, false, first.epochMillis, first.id),
+                page -> {
+                    newerRequest = null;
+                    if (gen != generation || page == null) return;
+                    rows.addAll(0, page);
+                    hasNewer = page.size() == PAGE_SIZE;
+                    int max = MAX_PAGES * PAGE_SIZE;
+                    if (rows.size() > max) {
+                        rows.subList(max, rows.size()).clear();
+                        hasOlder = true;
+                    }
+                    listener.onWindowChanged(snapshot(), page.size());
+                });
+    }
+
+    /** Applies a repository change to the window (inserted rows only if they fall inside it). */
+    void apply(RepositoryChange c) {
+        if (busy(firstRequest)) return; // the pending first page already reflects it
+        switch (c.kind) {
+            case INSERTED:
+                insert(c.transaction);
+                break;
+            case DELETED:
+                remove(c.id);
+                break;
+            case CLEARED:
+            case RELOADED:
+                refresh();
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void insert(Transaction t) {
+        if (t == null) return;
+        for (Transaction r : rows) {
+            if (r.id == t.id) return;
+        }
+        int pos = Collections.binarySearch(rows, t, PrefsManager.NEWEST_FIRST);
+        if (pos < 0) pos = -(pos + 1);
+        // Outside the window: it is read with the page it belongs to.
+        if (pos == 0 && hasNewer) return;
+        if (pos == rows.size() && hasOlder) return;
+        rows.add(pos, t);
+        listener.onWindowChanged(snapshot(), 0);
+    }
+
+    private void remove(long id) {
+        for (int i = 0; i < rows.size(); i++) {
+            if (rows.get(i).id == id) {
+                rows.remove(i);
+                listener.onWindowChanged(snapshot(), 0);
+                return;
+            }
+        }
+    }
+
+    private List<Transaction> snapshot() {
+        return new ArrayList<>(rows);
+    }
+
+    // Repository thread. null on failure so the caller can retry later.
+    private static List<Transaction> page(OfflineRepository r, boolean older, long epochMillis, long id) {
+        try {
+            return older
+                    ? r.getTransactionsOlderThan(epochMillis, id, PAGE_SIZE)
+                    : r.getTransactionsNewerThan(epochMillis, id, PAGE_SIZE);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    // A request cancelled with its owner (onStop) never delivers; treat it as finished.
+    private static boolean busy(OfflineRepository.Request r) {
+        return r != null && !r.isCancelled();
+    }
+
+    private static void cancel(OfflineRepository.Request r) {
+        if (r != null) r.cancel();
+    }
+}
@@ -0,0 +1,180 @@
+package com.moneytrackultra.cashbook;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persistence backend for transactions.
+ *
+ * PrefsManager owns exactly one store and keeps its snapshot cache on top of it.
+ * The filtered reads have scan-based defaults; indexed stores override them so the cost
+ * follows the size of the result instead of the size of the history.
+ */
+interface TransactionStore {
+
+    /** All transactions, in no particular order. */
+    List<Transaction> loadAll();
+
+    void insert(Transaction t);
+
+    /**
+     * Removes one transaction with the given id (the first one found if ids collide).
+     * Returns the removed row, or null when nothing matched.
+     */
+    Transaction delete(long id);
+
+    void replaceAll(List<Transaction> list);
+
+    void clear();
+
+    /**
+     * Transactions of one type, optionally narrowed to a source and/or date string
+     * (both compared case-insensitively). Newest first.
+     */
+    default List<Transaction> queryByType(TransactionType type, String source, String date) {
+        List<Transaction> out = new ArrayList<>();
+        for (Transaction t : loadAll()) {
+            if (t == null || t.type != type) continue;
+            if (source != null && (t.source == null || !t.source.equalsIgnoreCase(source))) continue;
+            if (date != null && (t.date == null || !t.date.equalsIgnoreCase(date))) continue;
+            out.add(t);
+        }
+        out.sort((a, b) -> {
+            int c = Long.compare(b.epochMillis, a.epochMillis);
+            return c != 0 ? c : Long.compare(b.id, a.id);
+        });
+        return out;
+    }
+
+    /**
+     * Transactions with fromMillis <= epochMillis < toMillis, newest first.
+     */
+    default List<Transaction> queryRange(long fromMillis, long toMillis) {
+        List<Transaction> out = new ArrayList<>();
+        for (Transaction t : loadAll()) {
+            if (t != null && t.epochMillis >= fromMillis && t.epochMillis < toMillis) out.add(t);
+        }
+        out.sort((a, b) -> {
+            int c = Long.compare(b.epochMillis, a.epochMillis);
+            return c != 0 ? c : Long.compare(b.id, a.id);
+        });
+        return out;
+    }
+
+    /** Income / expense sums (minor units) and row count over every stored transaction. */
+    default LedgerTotals ledgerTotals() {
+        long income = 0, expense = 0, count = 0;
+        for (Transaction t : loadAll()) {
+            if (t == null) continue;
+            if (t.type == TransactionType.INCOME) income += t.getAmountMinor();
+            else expense += t.getAmountMinor();
+            count++;
+        }
+        return new LedgerTotals(income, expense, count);
+    }
+
+    /**
+     * One entry per (type, calendar week of WeeklyRollup) holding type, weekStartDay, amountMinor
+     * and txCount; the other fields are left for the caller. In no particular order.
+     */
+    default List<WeeklyAggregate> weeklyTotals() {
+        Map<Long, WeeklyAggregate> weeks = new LinkedHashMap<>();
+        for (Transaction t : loadAll()) {
+            if (t == null) continue;
+            int start = WeeklyRollup.weekStartOf(t.epochDay);
+            long key = ((long) start << 1) | (t.type == TransactionType.INCOME ? 0 : 1);
+            WeeklyAggregate w = weeks.get(key);
+            if (w == null) {
+                w = new WeeklyAggregate();
+                w.type = t.type;
+                w.weekStartDay = start;
+                weeks.put(key, w);
+            }
+            w.amountMinor += t.getAmountMinor();
+            w.txCount++;
+        }
+        return new ArrayList<>(weeks.values());
+    }
+
+    /**
+     * Keyset page: up to {@code limit} transactions ordered after (epochMillis, id) in
+     * newest-first order, i.e. strictly older. Long.MAX_VALUE for both starts at the newest.
+     */
+    default List<Transaction> pageOlder(long epochMillis, long id, int limit) {
+        List<Transaction> out = new ArrayList<>(limit);
+        for (Transaction t : queryRange(Long.MIN_VALUE, Long.MAX_VALUE)) {
+            if (out.size() == limit) break;
+            if (t.epochMillis < epochMillis || (t.epochMillis == epochMillis && t.id < id)) out.add(t);
+        }
+        return out;
+    }
+
+    /**
+     * Keyset page the other way: the {@code limit} transactions closest to (epochMillis, id)
+     * that are strictly newer, returned newest first.
+     */
+    default List<Transaction> pageNewer(long epochMillis, long id, int limit) {
+        List<Transaction> newer = new ArrayList<>();
+        for (Transaction t : queryRange(epochMillis, Long.MAX_VALUE)) {
+            if (t.epochMillis > epochMillis || t.id > id) newer.add(t); // epochMillis >= key here
+        }
+        return new ArrayList<>(newer.subList(Math.max(0, newer.size() - limit), newer.size()));
+    }
+
+    /**
+     * One entry per Transaction.category() with its income / expense sums (minor units) and
+     * newest epochMillis; transactions are left empty. Most recently active category first.
+     */
+    default List<BalanceAggregate> categoryTotals() {
+        Map<String, BalanceAggregate> groups = new LinkedHashMap<>();
+        for (Transaction t : queryRange(Long.MIN_VALUE, Long.MAX_VALUE)) {
+            BalanceAggregate a = groups.get(t.category());
+            if (a == null) {
+                a = new BalanceAggregate();
+                a.key = t.category();
+                a.lastEpochMillis = t.epochMillis; // rows come newest first
+                groups.put(a.key, a);
+            }
+            if (t.type == TransactionType.INCOME) a.incomeMinor += t.getAmountMinor();
+            else a.expenseMinor += t.getAmountMinor();
+        }
+        return new ArrayList<>(groups.values());
+    }
+
+    /** Transactions whose category() equals {@code category} exactly. Newest first. */
+    default List<Transaction> queryByCategory(String category) {
+        List<Transaction> out = new ArrayList<>();
+        if (category == null) return out;
+        for (Transaction t : queryRange(Long.MIN_VALUE, Long.MAX_VALUE)) {
+            if (category.equals(t.category())) out.add(t);
+        }
+        return out;
+    }
+
+    /**
+     * Sum of absolute legacy major amounts of EXPENSE entries whose source matches
+     * (LimitUsageIndex.normalize on both sides: surrounding spaces and ASCII case ignored).
+     */
+    default long sumExpenseMajorBySource(String source) {
+        return sumExpenseMajorBySource(source, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Same as sumExpenseMajorBySource(String), limited to fromMillis <= epochMillis < toMillis.
+     */
+    default long sumExpenseMajorBySource(String source, long fromMillis, long toMillis) {
+        long sum = 0;
+        if (source == null) return 0;
+        String key = LimitUsageIndex.normalize(source);
+        for (Transaction t : loadAll()) {
+            if (t != null && t.type == TransactionType.EXPENSE
+                    && t.epochMillis >= fromMillis && t.epochMillis < toMillis
+                    && t.source != null && key.equals(LimitUsageIndex.normalize(t.source))) {
+                sum += Math.abs(t.amount);
+            }
+        }
+        return sum;
+    }
+}
@@ -1,14 +1,16 @@
 package com.moneytrackultra.cashbook;
 
 import android.view.LayoutInflater;
+import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ImageView;
-import android.widget.LinearLayout;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AsyncListDiffer;
 import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import java.util.ArrayList;
@@ -20,6 +22,8 @@ import java.util.List;
  *
  * Constructor takes a single WalletToggleListener with (walletId, expanded).
  * Use submit(List<Wallet>) to update data.
+ * An expanded wallet lists its transactions in a nested RecyclerView (WalletTransactionAdapter);
+ * all of them share one RecycledViewPool.
  */
 public class WalletAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
 
@@ -30,31 +34,34 @@ public class WalletAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
         void onToggle(long walletId, boolean expanded);
     }
 
-    private final List<Wallet> wallets = new ArrayList<>();
+    // Wallets with more transactions than this scroll them inside wallet_tx_list_max_height.
+    private static final int MAX_WRAPPED_ROWS = 6;
+
+    private final AsyncListDiffer<Wallet> differ = new AsyncListDiffer<>(this, new WalletDiff());
     private final WalletToggleListener listener;
+    // One pool for the transaction rows of every expanded wallet.
+    private final RecyclerView.RecycledViewPool txPool = new RecyclerView.RecycledViewPool();
 
     public WalletAdapter(WalletToggleListener listener) {
         this.listener = listener;
         setHasStableIds(true);
+        txPool.setMaxRecycledViews(WalletTransactionAdapter.VIEW_TYPE_ROW, 2 * MAX_WRAPPED_ROWS + 4);
     }
 
+    /** Copies the list; diffed against the current wallets in the background. */
     public void submit(List<Wallet> newList) {
-        if (newList == null) newList = new ArrayList<>();
-        DiffUtil.DiffResult diff = DiffUtil.calculateDiff(new WalletDiff(wallets, newList));
-        wallets.clear();
-        wallets.addAll(newList);
-        diff.dispatchUpdatesTo(this);
+        differ.submitList(newList == null || newList.isEmpty() ? null : new ArrayList<>(newList));
     }
 
     @Override
     public long getItemId(int position) {
-        Wallet w = wallets.get(position);
+        Wallet w = differ.getCurrentList().get(position);
         return (w != null ? w.id : position);
     }
 
     @Override
     public int getItemViewType(int position) {
-        Wallet w = wallets.get(position);
+        Wallet w = differ.getCurrentList().get(position);
         return (w != null && w.expanded) ? TYPE_EXPANDED : TYPE_COLLAPSED;
     }
 
@@ -72,7 +79,7 @@ public class WalletAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
 
     @Override
     public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
-        Wallet w = wallets.get(position);
+        Wallet w = differ.getCurrentList().get(position);
         if (w == null) return;
         if (holder instanceof CollapsedVH) ((CollapsedVH) holder).bind(w);
         else if (holder instanceof ExpandedVH) ((ExpandedVH) holder).bind(w);
@@ -80,20 +87,25 @@ public class WalletAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
 
     @Override
     public int getItemCount() {
-        return wallets.size();
+        return differ.getCurrentList().size();
     }
 
     private void toggleWallet(int pos) {
         if (pos == RecyclerView.NO_POSITION) return;
+        List<Wallet> wallets = differ.getCurrentList();
         Wallet target = wallets.get(pos);
         if (target == null) return;
 
-        // Single expansion; collapse others
-        for (Wallet w : wallets) {
-            if (w != target && w.expanded) w.expanded = false;
+        // Single expansion; collapse others. Only the rows that switch view type rebind.
+        for (int i = 0; i < wallets.size(); i++) {
+            Wallet w = wallets.get(i);
+            if (w != target && w != null && w.expanded) {
+                w.expanded = false;
+                notifyItemChanged(i);
+            }
         }
         target.expanded = !target.expanded;
-        notifyDataSetChanged();
+        notifyItemChanged(pos);
         if (listener != null) listener.onToggle(target.id, target.expanded);
     }
 
@@ -122,7 +134,10 @@ public class WalletAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
         final View collapsedHeader;
         final TextView tvName, tvAmount;
         final ImageView ivChevron;
-        final LinearLayout transactionsContainer;
+        final RecyclerView rvTransactions;
+        final WalletTransactionAdapter txAdapter = new WalletTransactionAdapter();
+        final int maxListHeight;
+        long boundWalletId = RecyclerView.NO_ID;
 
         ExpandedVH(@NonNull View itemView) {
             super(itemView);
@@ -130,7 +145,25 @@ public class WalletAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
             tvName = itemView.findViewById(R.id.tvWalletName);
             tvAmount = itemView.findViewById(R.id.tvWalletAmount);
             ivChevron = itemView.findViewById(R.id.ivChevron);
-            transactionsContainer = itemView.findViewById(R.id.transactionsContainer);
+            rvTransactions = itemView.findViewById(R.id.rvWalletTransactions);
+            maxListHeight = itemView.getResources().getDimensionPixelSize(R.dimen.wallet_tx_list_max_height);
+
+            LinearLayoutManager lm = new LinearLayoutManager(itemView.getContext());
+            lm.setRecycleChildrenOnDetach(true); // rows go back to the shared pool on collapse
+            rvTransactions.setLayoutManager(lm);
+            rvTransactions.setRecycledViewPool(txPool);
+            rvTransactions.setAdapter(txAdapter);
+            // A capped list scrolls itself: keep the wallet list from taking the drag.
+            rvTransactions.addOnItemTouchListener(new RecyclerView.SimpleOnItemTouchListener() {
+                @Override
+                public boolean onInterceptTouchEvent(@NonNull RecyclerView rv, @NonNull MotionEvent e) {
+                    if (e.getActionMasked() == MotionEvent.ACTION_DOWN) {
+                        rv.getParent().requestDisallowInterceptTouchEvent(
+                                rv.canScrollVertically(1) || rv.canScrollVertically(-1));
+                    }
+                    return false;
+                }
+            });
             collapsedHeader.setOnClickListener(v -> toggleWallet(getBindingAdapterPosition()));
         }
 
@@ -138,41 +171,27 @@ public class WalletAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
             tvName.setText(nonEmpty(w.name, "Wallet"));
             tvAmount.setText(formatCurrency(w.balance));
             ivChevron.setRotation(180f);
-            buildTransactions(w);
+            bindTransactions(w);
         }
 
-        private void buildTransactions(Wallet w) {
-            transactionsContainer.removeAllViews();
-            if (w.transactions == null || w.transactions.isEmpty()) return;
-
-            LayoutInflater inf = LayoutInflater.from(transactionsContainer.getContext());
-            int last = w.transactions.size() - 1;
-
-            for (int i = 0; i < w.transactions.size(); i++) {
-                WalletTransaction tx = w.transactions.get(i);
-                if (tx == null) continue;
-                View row = inf.inflate(R.layout.item_wallet_transaction_row, transactionsContainer, false);
-                TextView title = row.findViewById(R.id.tvTxTitle);
-                TextView sub   = row.findViewById(R.id.tvTxSub);
-                TextView amt   = row.findViewById(R.id.tvTxAmount);
-                View divider   = row.findViewById(R.id.divider);
-
-                String label = nonEmpty(tx.title, tx.amount < 0 ? "Expense" : "Income");
-                title.setText(label);
-
-                String platform = nonEmpty(tx.source, "—");
-                String date = nonEmpty(tx.date, "");
-                sub.setText(date.isEmpty() ? platform : date + " • " + platform);
-
-                boolean expense = tx.amount < 0;
-                long abs = Math.abs(tx.amount);
-                amt.setText((expense ? "- " : "+ ") + formatCurrency(abs));
-                int c = row.getContext().getColor(expense ? R.color.expenseRed : R.color.incomeGreen);
-                amt.setTextColor(c);
-
-                if (i == last && divider != null) divider.setVisibility(View.GONE);
-                transactionsContainer.addView(row);
+        private void bindTransactions(Wallet w) {
+            // Recycled for another wallet: drop the old rows instead of diffing against them.
+            if (w.id != boundWalletId) {
+                txAdapter.submit(null);
+                rvTransactions.scrollToPosition(0);
+                boundWalletId = w.id;
+            }
+            int count = w.transactions == null ? 0 : w.transactions.size();
+
+            // Short lists wrap their rows; longer ones scroll inside a capped height, so only
+            // the rows on screen are bound.
+            ViewGroup.LayoutParams lp = rvTransactions.getLayoutParams();
+            int height = count > MAX_WRAPPED_ROWS ? maxListHeight : ViewGroup.LayoutParams.WRAP_CONTENT;
+            if (lp.height != height) {
+                lp.height = height;
+                rvTransactions.setLayoutParams(lp);
             }
+            txAdapter.submit(w.transactions);
         }
     }
 
@@ -188,30 +207,15 @@ public class WalletAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
     }
 
     /* ------------ DiffUtil ------------ */
-    static class WalletDiff extends DiffUtil.Callback {
-        private final List<Wallet> oldList;
-        private final List<Wallet> newList;
-
-        WalletDiff(List<Wallet> oldList, List<Wallet> newList) {
-            this.oldList = oldList;
-            this.newList = newList;
-        }
-
-        @Override public int getOldListSize() { return oldList.size(); }
-        @Override public int getNewListSize() { return newList.size(); }
+    static class WalletDiff extends DiffUtil.ItemCallback<Wallet> {
 
         @Override
-        public boolean areItemsTheSame(int o, int n) {
-            Wallet a = oldList.get(o);
-            Wallet b = newList.get(n);
-            return a != null && b != null && a.id == b.id;
+        public boolean areItemsTheSame(@NonNull Wallet a, @NonNull Wallet b) {
+            return a.id == b.id;
         }
 
         @Override
-        public boolean areContentsTheSame(int o, int n) {
-            Wallet a = oldList.get(o);
-            Wallet b = newList.get(n);
-            if (a == null || b == null) return false;
+        public boolean areContentsTheSame(@NonNull Wallet a, @NonNull Wallet b) {
             if (a.expanded != b.expanded) return false;
             if (a.balance != b.balance) return false;
             String an = a.name == null ? "" : a.name;
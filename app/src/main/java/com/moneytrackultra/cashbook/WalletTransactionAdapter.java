@@ -0,0 +1,132 @@
+package com.moneytrackultra.cashbook;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Rows of one expanded wallet (item_wallet_transaction_row).
+ * WalletAdapter gives every instance the same RecycledViewPool, so row views move between
+ * wallets instead of being inflated per expand.
+ */
+class WalletTransactionAdapter extends RecyclerView.Adapter<WalletTransactionAdapter.RowVH> {
+
+    static final int VIEW_TYPE_ROW = 0;
+
+    private static final DiffUtil.ItemCallback<WalletTransaction> DIFF = new DiffUtil.ItemCallback<WalletTransaction>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull WalletTransaction a, @NonNull WalletTransaction b) {
+            return a.id == b.id;
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull WalletTransaction a, @NonNull WalletTransaction b) {
+            return a.amount == b.amount
+                    && Objects.equals(a.title, b.title)
+                    && Objects.equals(a.source, b.source)
+                    && Objects.equals(a.date, b.date);
+        }
+    };
+
+    private final AsyncListDiffer<WalletTransaction> differ = new AsyncListDiffer<>(this, DIFF);
+
+    WalletTransactionAdapter() {
+        setHasStableIds(true);
+        differ.addListListener(this::rebindLastRows);
+    }
+
+    /** Copies the list (null entries skipped); null or empty clears at once. */
+    void submit(List<WalletTransaction> list) {
+        List<WalletTransaction> copy = new ArrayList<>();
+        if (list != null) {
+            for (WalletTransaction tx : list) {
+                if (tx != null) copy.add(tx);
+            }
+        }
+        differ.submitList(copy.isEmpty() ? null : copy);
+    }
+
+    // The divider is hidden on the last row only: rebind the rows that gained / lost that spot.
+    private void rebindLastRows(List<WalletTransaction> previous, List<WalletTransaction> current) {
+        if (previous.isEmpty() || current.isEmpty()) return;
+        long oldLast = previous.get(previous.size() - 1).id;
+        long newLast = current.get(current.size() - 1).id;
+        if (oldLast == newLast) return;
+        for (int i = 0; i < current.size(); i++) {
+            if (current.get(i).id == oldLast) { notifyItemChanged(i); break; }
+        }
+        for (WalletTransaction tx : previous) {
+            if (tx.id == newLast) { notifyItemChanged(current.size() - 1); break; }
+        }
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return differ.getCurrentList().get(position).id;
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return VIEW_TYPE_ROW;
+    }
+
+    @NonNull
+    @Override
+    public RowVH onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View v = LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.item_wallet_transaction_row, parent, false);
+        return new RowVH(v);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull RowVH h, int position) {
+        List<WalletTransaction> items = differ.getCurrentList();
+        h.bind(items.get(position), position == items.size() - 1);
+    }
+
+    @Override
+    public int getItemCount() {
+        return differ.getCurrentList().size();
+    }
+
+    static class RowVH extends RecyclerView.ViewHolder {
+        final TextView title, sub, amt;
+        final View divider;
+
+        RowVH(@NonNull View itemView) {
+            super(itemView);
+            title   = itemView.findViewById(R.id.tvTxTitle);
+            sub     = itemView.findViewById(R.id.tvTxSub);
+            amt     = itemView.findViewById(R.id.tvTxAmount);
+            divider = itemView.findViewById(R.id.divider);
+        }
+
+        void bind(WalletTransaction tx, boolean last) {
+            boolean expense = tx.amount < 0;
+            title.setText(nonEmpty(tx.title, expense ? "Expense" : "Income"));
+
+            String platform = nonEmpty(tx.source, "—");
+            String date = nonEmpty(tx.date, "");
+            sub.setText(date.isEmpty() ? platform : date + " • " + platform);
+
+            amt.setText(CurrencyUtil.formatMajor(expense ? "- " : "+ ", Math.abs(tx.amount)));
+            amt.setTextColor(itemView.getContext().getColor(expense ? R.color.expenseRed : R.color.incomeGreen));
+
+            if (divider != null) divider.setVisibility(last ? View.GONE : View.VISIBLE);
+        }
+
+        private static String nonEmpty(String s, String def) {
+            return (s == null || s.trim().isEmpty()) ? def : s;
+        }
+    }
+}
@@ -6,10 +6,13 @@ import android.view.ViewGroup;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * Displays weekly aggregates for a single TransactionType passed in constructor.
@@ -21,23 +24,49 @@ import java.util.List;
  */
 public class WeeklyAdapter extends RecyclerView.Adapter<WeeklyAdapter.VH> {
 
-    private final List<WeeklyAggregate> data = new ArrayList<>();
+    // Rows are matched by calendar week, or by week-of-month index when weekStartDay is 0.
+    private static final DiffUtil.ItemCallback<WeeklyAggregate> DIFF = new DiffUtil.ItemCallback<WeeklyAggregate>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull WeeklyAggregate a, @NonNull WeeklyAggregate b) {
+            return rowId(a) == rowId(b);
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull WeeklyAggregate a, @NonNull WeeklyAggregate b) {
+            return a.amountMinor == b.amountMinor
+                    && a.weekIndex == b.weekIndex
+                    && Objects.equals(a.label, b.label);
+        }
+    };
+
+    private final AsyncListDiffer<WeeklyAggregate> differ = new AsyncListDiffer<>(this, DIFF);
     private final TransactionType type;
     private boolean showSign = true; // toggle if you want to hide +/- sign
 
     public WeeklyAdapter(TransactionType type){
         this.type = type;
+        setHasStableIds(true);
     }
 
+    /** Copies the list; diffed against the current rows in the background. */
     public void submit(List<WeeklyAggregate> list){
-        data.clear();
-        if (list != null) data.addAll(list);
-        notifyDataSetChanged();
+        differ.submitList(list == null || list.isEmpty() ? null : new ArrayList<>(list));
     }
 
     public void setShowSign(boolean showSign) {
+        if (this.showSign == showSign) return;
         this.showSign = showSign;
-        notifyDataSetChanged();
+        notifyItemRangeChanged(0, getItemCount());
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return rowId(differ.getCurrentList().get(position));
+    }
+
+    // Week-of-month rows get ids below the int range, clear of any epoch day.
+    private static long rowId(WeeklyAggregate w) {
+        return w.weekStartDay != 0 ? w.weekStartDay : (long) Integer.MIN_VALUE - w.weekIndex;
     }
 
     @NonNull
@@ -50,12 +79,12 @@ public class WeeklyAdapter extends RecyclerView.Adapter<WeeklyAdapter.VH> {
 
     @Override
     public void onBindViewHolder(@NonNull VH holder, int position) {
-        holder.bind(data.get(position), type, showSign);
+        holder.bind(differ.getCurrentList().get(position), type, showSign);
     }
 
     @Override
     public int getItemCount() {
-        return data.size();
+        return differ.getCurrentList().size();
     }
 
     /* ---------------- ViewHolder ---------------- */
@@ -4,20 +4,24 @@ package com.moneytrackultra.cashbook;
  * Weekly aggregate for a single transaction type (INCOME or EXPENSE).
  *
  * Conventions:
- *  - weekIndex is 1-based (Week 1, Week 2, ...)
+ *  - weekIndex is 1-based: the week of the week-based year (ISO) for calendar-week series
+ *    (WeeklyRollup), the week within the month for week-of-month buckets.
  *  - amountMinor stores summed value in minor units (e.g. cents / paisa).
  *  - label optional: if null adapter will render "W" + weekIndex.
  *  - fromEpoch/toEpoch (optional) let you debug or drill down (toEpoch exclusive).
  *  - txCount is number of transactions contributing (optional, can be ignored by UI).
+ *  - weekStartDay is the epoch day of the week's first day for calendar-week series
+ *    (WeeklyRollup); 0 for week-of-month buckets.
  */
 public class WeeklyAggregate {
-    public int weekIndex;        // 1-based index within the month
+    public int weekIndex;        // 1-based week of year (calendar weeks) or of month
     public long amountMinor;     // summed amount in minor units
     public TransactionType type; // INCOME or EXPENSE
     public String label;         // optional custom label
     public long fromEpoch;       // start of week (inclusive) - optional
     public long toEpoch;         // end of week (exclusive) - optional
     public int txCount;          // number of transactions in this week (optional)
+    public int weekStartDay;     // epoch day of the first day of the week (calendar-week series)
 
     public WeeklyAggregate() {}
 
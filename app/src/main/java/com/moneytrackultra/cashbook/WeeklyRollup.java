@@ -0,0 +1,201 @@
+package com.moneytrackultra.cashbook;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.TemporalAdjusters;
+import java.time.temporal.WeekFields;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Calendar-week income / expense series over the whole history.
+ *
+ * Weeks start on FIRST_DAY (ISO: Monday) and are keyed by the epoch day of that first day,
+ * computed from Transaction.epochDay, so the same week of different months never merges.
+ * Per-type totals are seeded when the store is opened from TransactionStore.weeklyTotals(), which the SQLite
+ * store keeps in weekly_totals inside each write's DB transaction; here they are only kept in
+ * step in memory, so a write costs O(log weeks) and persists nothing. Series entries carry
+ * weekIndex (week of week-based year), label, fromEpoch / toEpoch and txCount. A per-category
+ * breakdown is kept in memory and loaded on first use.
+ */
+final class WeeklyRollup implements LedgerIndex {
+
+    static final DayOfWeek FIRST_DAY = DayOfWeek.MONDAY;
+    private static final WeekFields WEEK_FIELDS = WeekFields.of(FIRST_DAY, 4); // ISO when Monday
+
+    // Per type code (CashbookDatabase.TYPE_*): weekStartDay -> aggregate, ascending.
+    @SuppressWarnings("unchecked")
+    private final TreeMap<Integer, WeeklyAggregate>[] totals = new TreeMap[]{new TreeMap<>(), new TreeMap<>()};
+    // Per type code: category -> weekStartDay -> {amountMinor, count}. Null until loaded.
+    private Map<String, TreeMap<Integer, long[]>>[] byCategory;
+
+    /** Loads the stored per-type totals (TransactionStore.weeklyTotals()), replacing any held. */
+    synchronized void seed(List<WeeklyAggregate> stored) {
+        totals[0].clear();
+        totals[1].clear();
+        if (stored == null) return;
+        for (WeeklyAggregate s : stored) {
+            if (s == null || s.type == null) continue;
+            WeeklyAggregate w = newWeek(s.type, s.weekStartDay);
+            w.amountMinor = s.amountMinor;
+            w.txCount = s.txCount;
+            totals[CashbookDatabase.typeCode(w.type)].put(w.weekStartDay, w);
+        }
+    }
+
+    static int weekStartOf(int epochDay) {
+        return (int) LocalDate.ofEpochDay(epochDay).with(TemporalAdjusters.previousOrSame(FIRST_DAY)).toEpochDay();
+    }
+
+    /* ---------- LedgerIndex ---------- */
+
+    @Override
+    public synchronized void onInserted(Transaction t) {
+        add(t, 1);
+    }
+
+    @Override
+    public synchronized void onDeleted(Transaction t) {
+        add(t, -1);
+    }
+
+    @Override
+    public synchronized void rebuild(List<Transaction> all) {
+        totals[0].clear();
+        totals[1].clear();
+        byCategory = newCategoryMaps();
+        if (all != null) {
+            for (Transaction t : all) add(t, 1);
+        }
+    }
+
+    @Override
+    public synchronized boolean needsRebuild() {
+        return false; // seeded from the store
+    }
+
+    /* ---------- Queries ---------- */
+
+    /** Both type series (copies), income first, each oldest first. */
+    synchronized List<WeeklyAggregate> all() {
+        List<WeeklyAggregate> out = new ArrayList<>(totals[0].size() + totals[1].size());
+        for (TreeMap<Integer, WeeklyAggregate> m : totals) {
+            for (WeeklyAggregate w : m.values()) out.add(copy(w));
+        }
+        return out;
+    }
+
+    synchronized boolean hasCategories() {
+        return byCategory != null;
+    }
+
+    /**
+     * Week series for a type, oldest first; category null = all categories.
+     * A category series needs the breakdown (see PrefsManager.getWeeklyRollup).
+     */
+    synchronized List<WeeklyAggregate> series(TransactionType type, String category) {
+        int code = CashbookDatabase.typeCode(type);
+        List<WeeklyAggregate> out = new ArrayList<>();
+        if (category == null) {
+            for (WeeklyAggregate w : totals[code].values()) out.add(copy(w));
+            return out;
+        }
+        if (byCategory == null) return out;
+        TreeMap<Integer, long[]> weeks = byCategory[code].get(category);
+        if (weeks == null) return out;
+        for (Map.Entry<Integer, long[]> e : weeks.entrySet()) {
+            WeeklyAggregate w = newWeek(type, e.getKey());
+            w.amountMinor = e.getValue()[0];
+            w.txCount = (int) e.getValue()[1];
+            out.add(w);
+        }
+        return out;
+    }
+
+    /* ---------- Maintenance ---------- */
+
+    private void add(Transaction t, int sign) {
+        if (t == null) return;
+        int code = CashbookDatabase.typeCode(t.type);
+        int week = weekStartOf(t.epochDay);
+        long amt = sign * t.getAmountMinor();
+
+        WeeklyAggregate w = totals[code].get(week);
+        if (w == null) {
+            if (sign < 0) return;
+            w = newWeek(t.type, week);
+            totals[code].put(week, w);
+        }
+        w.amountMinor += amt;
+        w.txCount += sign;
+        if (w.txCount <= 0) totals[code].remove(week);
+
+        if (byCategory != null) {
+            Map<String, TreeMap<Integer, long[]>> cats = byCategory[code];
+            TreeMap<Integer, long[]> weeks = cats.get(t.category());
+            if (weeks == null && sign > 0) {
+                weeks = new TreeMap<>();
+                cats.put(t.category(), weeks);
+            }
+            if (weeks != null) {
+                long[] cell = weeks.get(week);
+                if (cell == null && sign > 0) {
+                    cell = new long[2];
+                    weeks.put(week, cell);
+                }
+                if (cell != null) {
+                    cell[0] += amt;
+                    cell[1] += sign;
+                    if (cell[1] <= 0) weeks.remove(week);
+                    if (weeks.isEmpty()) cats.remove(t.category());
+                }
+            }
+        }
+    }
+
+    /** Loads the per-category breakdown (PrefsManager passes the snapshot). */
+    synchronized void loadCategories(List<Transaction> all) {
+        byCategory = newCategoryMaps();
+        if (all == null) return;
+        for (Transaction t : all) {
+            if (t == null) continue;
+            TreeMap<Integer, long[]> weeks = byCategory[CashbookDatabase.typeCode(t.type)]
+                    .computeIfAbsent(t.category(), k -> new TreeMap<>());
+            long[] cell = weeks.computeIfAbsent(weekStartOf(t.epochDay), k -> new long[2]);
+            cell[0] += t.getAmountMinor();
+            cell[1]++;
+        }
+    }
+
+    private static WeeklyAggregate newWeek(TransactionType type, int weekStartDay) {
+        LocalDate start = LocalDate.ofEpochDay(weekStartDay);
+        ZoneId zone = ZoneId.systemDefault();
+        int weekNo = start.get(WEEK_FIELDS.weekOfWeekBasedYear());
+        int year = start.get(WEEK_FIELDS.weekBasedYear());
+        WeeklyAggregate w = new WeeklyAggregate(weekNo, 0, type,
+                String.format(Locale.US, "W%d '%02d", weekNo, year % 100));
+        w.weekStartDay = weekStartDay;
+        w.fromEpoch = start.atStartOfDay(zone).toInstant().toEpochMilli();
+        w.toEpoch = start.plusWeeks(1).atStartOfDay(zone).toInstant().toEpochMilli();
+        return w;
+    }
+
+    private static WeeklyAggregate copy(WeeklyAggregate w) {
+        WeeklyAggregate c = new WeeklyAggregate(w.weekIndex, w.amountMinor, w.type, w.label);
+        c.fromEpoch = w.fromEpoch;
+        c.toEpoch = w.toEpoch;
+        c.txCount = w.txCount;
+        c.weekStartDay = w.weekStartDay;
+        return c;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, TreeMap<Integer, long[]>>[] newCategoryMaps() {
+        return new Map[]{new HashMap<>(), new HashMap<>()};
+    }
+}
@@ -0,0 +1,105 @@
+package com.moneytrackultra.cashbook;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * CurrencyUtil / CurrencyFormatter output, checked by hand at the edges and against
+ * String.format(Locale.US) (the old NumberFormat output) for random values.
+ */
+public class CurrencyFormatterTest {
+
+    @Before
+    public void useDollars() {
+        CurrencyUtil.setCode("USD");
+    }
+
+    @After
+    public void restoreDefault() {
+        CurrencyUtil.setCode("BDT");
+    }
+
+    @Test
+    public void formatMajor_zeroAndNegatives() {
+        assertEquals("$ 0", CurrencyUtil.formatMajor(0));
+        assertEquals("$ -1", CurrencyUtil.formatMajor(-1));
+        assertEquals("$ -1,000", CurrencyUtil.formatMajor(-1000));
+        assertEquals("$ 0.00", CurrencyUtil.formatMajorWithDecimals(0));
+        assertEquals("$ -5.00", CurrencyUtil.formatMajorWithDecimals(-5));
+    }
+
+    @Test
+    public void formatMajor_groupingBoundaries() {
+        assertEquals("$ 999", CurrencyUtil.formatMajor(999));
+        assertEquals("$ 1,000", CurrencyUtil.formatMajor(1000));
+        assertEquals("$ 999,999", CurrencyUtil.formatMajor(999_999));
+        assertEquals("$ 1,000,000", CurrencyUtil.formatMajor(1_000_000));
+        assertEquals("$ 1,000,000.00", CurrencyUtil.formatMajorWithDecimals(1_000_000));
+    }
+
+    @Test
+    public void formatMajor_longExtremes() {
+        assertEquals("$ 9,223,372,036,854,775,807", CurrencyUtil.formatMajor(Long.MAX_VALUE));
+        assertEquals("$ -9,223,372,036,854,775,808", CurrencyUtil.formatMajor(Long.MIN_VALUE));
+        assertEquals("$ -9,223,372,036,854,775,807", CurrencyUtil.formatMajor(Long.MIN_VALUE + 1));
+        assertEquals("$ -9,223,372,036,854,775,808.00", CurrencyUtil.formatMajorWithDecimals(Long.MIN_VALUE));
+    }
+
+    @Test
+    public void formatMinor_splitsMinorUnitsExactly() {
+        assertEquals("$ 0.00", CurrencyUtil.formatMinor(0));
+        assertEquals("$ 0.01", CurrencyUtil.formatMinor(1));
+        assertEquals("$ 0.05", CurrencyUtil.formatMinor(5));
+        assertEquals("$ 0.99", CurrencyUtil.formatMinor(99));
+        assertEquals("$ 1.00", CurrencyUtil.formatMinor(100));
+        assertEquals("$ -0.01", CurrencyUtil.formatMinor(-1));
+        assertEquals("$ -0.99", CurrencyUtil.formatMinor(-99));
+        assertEquals("$ 999.99", CurrencyUtil.formatMinor(99_999));
+        assertEquals("$ 1,000.00", CurrencyUtil.formatMinor(100_000));
+        assertEquals("$ 1,234.56", CurrencyUtil.formatMinor(123_456));
+        assertEquals("$ 1,000,000.01", CurrencyUtil.formatMinor(100_000_001));
+    }
+
+    @Test
+    public void formatMinor_longExtremes() {
+        assertEquals("$ 92,233,720,368,547,758.07", CurrencyUtil.formatMinor(Long.MAX_VALUE));
+        assertEquals("$ -92,233,720,368,547,758.08", CurrencyUtil.formatMinor(Long.MIN_VALUE));
+        assertEquals("$ -92,233,720,368,547,758.07", CurrencyUtil.formatMinor(Long.MIN_VALUE + 1));
+        // Past 2^53, where the old double-based path dropped the last cents.
+        assertEquals("$ 90,071,992,547,409.93", CurrencyUtil.formatMinor((1L << 53) + 1));
+    }
+
+    @Test
+    public void lead_goesInFrontOfTheSymbol() {
+        assertEquals("+ $ 1,500", CurrencyUtil.formatMajor("+ ", 1500));
+        assertEquals("- $ 12.34", CurrencyUtil.formatMinor("- ", 1234));
+        String longLead = "Balance as of today: ";
+        assertEquals(longLead + "$ 1,000", CurrencyUtil.formatMajor(longLead, 1000));
+    }
+
+    @Test
+    public void randomValues_matchLocaleUsFormat() {
+        Random rnd = new Random(1);
+        for (int i = 0; i < 5_000; i++) {
+            long v = rnd.nextLong() >> rnd.nextInt(64);
+            assertEquals("$ " + String.format(Locale.US, "%,d", v), CurrencyUtil.formatMajor(v));
+            assertEquals("$ " + String.format(Locale.US, "%,.2f", BigDecimal.valueOf(v, 2)),
+                    CurrencyUtil.formatMinor(v));
+        }
+    }
+
+    @Test
+    public void symbolPerCode() {
+        CurrencyUtil.setCode("bdt");
+        assertEquals("৳ 720,000", CurrencyUtil.formatMajor(720_000));
+        CurrencyUtil.setCode("EUR");
+        assertEquals("€ 1.00", CurrencyUtil.formatMinor(100));
+    }
+}
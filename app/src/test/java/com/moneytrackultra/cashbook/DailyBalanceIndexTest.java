@@ -0,0 +1,114 @@
+package com.moneytrackultra.cashbook;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * DailyBalanceIndex against a naive sum over the same rows, through random inserts and deletes
+ * that grow the trees and move their base day back.
+ */
+public class DailyBalanceIndexTest {
+
+    private static final int START_DAY = 19_000;
+
+    @Test
+    public void randomInsertsAndDeletes_matchNaiveSums() {
+        Random rnd = new Random(42);
+        DailyBalanceIndex index = new DailyBalanceIndex();
+        List<Transaction> rows = new ArrayList<>();
+        index.rebuild(rows);
+
+        for (int step = 0; step < 2_000; step++) {
+            if (!rows.isEmpty() && rnd.nextInt(3) == 0) {
+                Transaction t = rows.remove(rnd.nextInt(rows.size()));
+                index.onDeleted(t);
+            } else {
+                Transaction t = randomTransaction(rnd, step);
+                rows.add(t);
+                index.onInserted(t);
+            }
+            if (step % 50 == 0) assertMatches(index, rows, rnd);
+        }
+        assertMatches(index, rows, rnd);
+    }
+
+    @Test
+    public void rebuild_matchesIncrementalState() {
+        Random rnd = new Random(7);
+        List<Transaction> rows = new ArrayList<>();
+        for (int i = 0; i < 500; i++) rows.add(randomTransaction(rnd, i));
+
+        DailyBalanceIndex index = new DailyBalanceIndex();
+        index.rebuild(rows);
+        assertMatches(index, rows, rnd);
+    }
+
+    @Test
+    public void emptyIndex_isZero() {
+        DailyBalanceIndex index = new DailyBalanceIndex();
+        index.rebuild(new ArrayList<>());
+        assertEquals(0, index.balanceAsOf(START_DAY));
+        assertEquals(0, index.sum(TransactionType.INCOME, START_DAY - 10, START_DAY + 10));
+    }
+
+    @Test
+    public void backdatedEntry_rebasesWithoutLosingHistory() {
+        DailyBalanceIndex index = new DailyBalanceIndex();
+        List<Transaction> rows = new ArrayList<>();
+        rows.add(tx(1, TransactionType.INCOME, 10_000, START_DAY));
+        index.rebuild(rows);
+
+        index.onInserted(tx(2, TransactionType.EXPENSE, 2_500, START_DAY - 400));
+        index.onInserted(tx(3, TransactionType.INCOME, 700, START_DAY + 900));
+
+        assertEquals(-2_500, index.balanceAsOf(START_DAY - 1));
+        assertEquals(7_500, index.balanceAsOf(START_DAY));
+        assertEquals(8_200, index.balanceAsOf(START_DAY + 900));
+        assertEquals(10_700, index.sum(TransactionType.INCOME, START_DAY - 400, START_DAY + 900));
+        assertEquals(0, index.sum(TransactionType.INCOME, START_DAY + 1, START_DAY + 899));
+    }
+
+    /* ---------- Helpers ---------- */
+
+    // Days spread over ~6 years around START_DAY so both grow() and rebase() are exercised.
+    private static Transaction randomTransaction(Random rnd, long id) {
+        TransactionType type = rnd.nextBoolean() ? TransactionType.INCOME : TransactionType.EXPENSE;
+        int day = START_DAY - 1_000 + rnd.nextInt(2_200);
+        return tx(id, type, 1 + rnd.nextInt(1_000_000), day);
+    }
+
+    private static Transaction tx(long id, TransactionType type, long amountMinor, int epochDay) {
+        return new Transaction(id, type, amountMinor, 0L, epochDay, "t", null, null);
+    }
+
+    private static void assertMatches(DailyBalanceIndex index, List<Transaction> rows, Random rnd) {
+        for (int i = 0; i < 40; i++) {
+            long a = START_DAY - 1_200 + rnd.nextInt(2_600);
+            long b = START_DAY - 1_200 + rnd.nextInt(2_600);
+            long from = Math.min(a, b), to = Math.max(a, b);
+            assertEquals("income " + from + ".." + to,
+                    naiveSum(rows, TransactionType.INCOME, from, to),
+                    index.sum(TransactionType.INCOME, from, to));
+            assertEquals("expense " + from + ".." + to,
+                    naiveSum(rows, TransactionType.EXPENSE, from, to),
+                    index.sum(TransactionType.EXPENSE, from, to));
+            assertEquals("balance as of " + to,
+                    naiveSum(rows, TransactionType.INCOME, Long.MIN_VALUE, to)
+                            - naiveSum(rows, TransactionType.EXPENSE, Long.MIN_VALUE, to),
+                    index.balanceAsOf(to));
+        }
+    }
+
+    private static long naiveSum(List<Transaction> rows, TransactionType type, long from, long to) {
+        long s = 0;
+        for (Transaction t : rows) {
+            if (t.type == type && t.epochDay >= from && t.epochDay <= to) s += t.getAmountMinor();
+        }
+        return s;
+    }
+}
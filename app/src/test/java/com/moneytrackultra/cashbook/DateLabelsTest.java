@@ -0,0 +1,98 @@
+package com.moneytrackultra.cashbook;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+/**
+ * DateLabels across DST switch days and a time zone reset. The default zone / locale are set
+ * per test and restored afterwards.
+ */
+public class DateLabelsTest {
+
+    private static final ZoneId NEW_YORK = ZoneId.of("America/New_York");
+
+    private TimeZone savedZone;
+    private Locale savedLocale;
+
+    @Before
+    public void setUp() {
+        savedZone = TimeZone.getDefault();
+        savedLocale = Locale.getDefault();
+        useZone(NEW_YORK);
+        Locale.setDefault(Locale.US);
+        DateLabels.get().reset();
+    }
+
+    @After
+    public void tearDown() {
+        TimeZone.setDefault(savedZone);
+        Locale.setDefault(savedLocale);
+        DateLabels.get().reset();
+    }
+
+    @Test
+    public void dayTime_springForwardDay() {
+        // 2024-03-10 is 23 hours long in New York: 02:00 EST jumps to 03:00 EDT.
+        assertEquals("10 Mar 2024 00:00", label(ZonedDateTime.of(2024, 3, 10, 0, 0, 0, 0, NEW_YORK)));
+        assertEquals("10 Mar 2024 01:59", label(ZonedDateTime.of(2024, 3, 10, 1, 59, 0, 0, NEW_YORK)));
+        assertEquals("10 Mar 2024 03:00", label(ZonedDateTime.of(2024, 3, 10, 3, 0, 0, 0, NEW_YORK)));
+        assertEquals("10 Mar 2024 23:59", label(ZonedDateTime.of(2024, 3, 10, 23, 59, 0, 0, NEW_YORK)));
+        assertEquals("11 Mar 2024 00:00", label(ZonedDateTime.of(2024, 3, 11, 0, 0, 0, 0, NEW_YORK)));
+    }
+
+    @Test
+    public void dayTime_fallBackDay() {
+        // 2024-11-03 is 25 hours long: 01:00-02:00 happens twice.
+        ZonedDateTime firstPass = ZonedDateTime.of(2024, 11, 3, 1, 30, 0, 0, NEW_YORK);
+        ZonedDateTime secondPass = firstPass.withLaterOffsetAtOverlap();
+        assertEquals("03 Nov 2024 01:30", label(firstPass));
+        assertEquals("03 Nov 2024 01:30", label(secondPass));
+        assertEquals("03 Nov 2024 23:59", label(ZonedDateTime.of(2024, 11, 3, 23, 59, 0, 0, NEW_YORK)));
+    }
+
+    @Test
+    public void dayTime_wrongHintFallsBackToTheRealDay() {
+        ZonedDateTime t = ZonedDateTime.of(2024, 3, 10, 12, 5, 0, 0, NEW_YORK);
+        int day = (int) t.toLocalDate().toEpochDay();
+        long millis = t.toInstant().toEpochMilli();
+        assertEquals("10 Mar 2024 12:05", DateLabels.get().dayTime(millis, day - 1));
+        assertEquals("10 Mar 2024 12:05", DateLabels.get().dayTime(millis, day + 1));
+    }
+
+    @Test
+    public void reset_picksUpNewZone() {
+        long millis = ZonedDateTime.of(2024, 6, 30, 22, 0, 0, 0, NEW_YORK).toInstant().toEpochMilli();
+        assertEquals("30 Jun 2024 22:00", DateLabels.get().dayTime(millis, EpochDays.of(millis)));
+
+        useZone(ZoneId.of("Asia/Tokyo")); // 13 hours ahead: already the next morning
+        DateLabels.get().reset();
+        assertEquals("01 Jul 2024 11:00", DateLabels.get().dayTime(millis, EpochDays.of(millis)));
+    }
+
+    @Test
+    public void shortDay_followsLocaleAfterReset() {
+        int day = (int) LocalDate.of(2026, 3, 5).toEpochDay();
+        assertEquals("5 Mar 2026", DateLabels.get().shortDay(day));
+
+        Locale.setDefault(Locale.GERMANY);
+        DateLabels.get().reset();
+        assertEquals("5 März 2026", DateLabels.get().shortDay(day));
+    }
+
+    private static String label(ZonedDateTime t) {
+        return DateLabels.get().dayTime(t.toInstant().toEpochMilli(), (int) t.toLocalDate().toEpochDay());
+    }
+
+    private static void useZone(ZoneId zone) {
+        TimeZone.setDefault(TimeZone.getTimeZone(zone));
+    }
+}
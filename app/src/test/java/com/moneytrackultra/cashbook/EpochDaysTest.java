@@ -0,0 +1,97 @@
+package com.moneytrackultra.cashbook;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+/**
+ * EpochDays.of around DST switches and EpochDays.LegacyDays on the date strings older builds
+ * stored. The default zone / locale are set per test and restored afterwards.
+ */
+public class EpochDaysTest {
+
+    private static final ZoneId NEW_YORK = ZoneId.of("America/New_York");
+
+    private TimeZone savedZone;
+    private Locale savedLocale;
+
+    @Before
+    public void setUp() {
+        savedZone = TimeZone.getDefault();
+        savedLocale = Locale.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone(NEW_YORK));
+        Locale.setDefault(Locale.US);
+    }
+
+    @After
+    public void tearDown() {
+        TimeZone.setDefault(savedZone);
+        Locale.setDefault(savedLocale);
+    }
+
+    @Test
+    public void of_dstSwitchDays() {
+        int mar10 = day(2024, 3, 10);
+        assertEquals(mar10, EpochDays.of(at(2024, 3, 10, 0, 0)));
+        assertEquals(mar10, EpochDays.of(at(2024, 3, 10, 23, 59)));
+        assertEquals(mar10 + 1, EpochDays.of(at(2024, 3, 11, 0, 0)));
+
+        ZonedDateTime lateOverlap = ZonedDateTime.of(2024, 11, 3, 1, 30, 0, 0, NEW_YORK).withLaterOffsetAtOverlap();
+        assertEquals(day(2024, 11, 3), EpochDays.of(lateOverlap.toInstant().toEpochMilli()));
+        assertEquals(day(2024, 11, 3), EpochDays.of(at(2024, 11, 3, 23, 59)));
+    }
+
+    @Test
+    public void of_followsTheDefaultZone() {
+        long millis = at(2024, 6, 30, 22, 0);
+        assertEquals(day(2024, 6, 30), EpochDays.of(millis));
+        TimeZone.setDefault(TimeZone.getTimeZone("Asia/Tokyo"));
+        assertEquals(day(2024, 7, 1), EpochDays.of(millis));
+    }
+
+    @Test
+    public void legacyDays_parsesEveryStoredFormat() {
+        EpochDays.LegacyDays legacy = new EpochDays.LegacyDays();
+        int expected = day(2024, 3, 10);
+        long otherDay = at(2020, 1, 1, 12, 0);
+        assertEquals(expected, legacy.epochDay("Sunday, 10 March 2024", otherDay));
+        assertEquals(expected, legacy.epochDay("10 Mar 2024", otherDay));
+        assertEquals(expected, legacy.epochDay(" 10/03/2024 ", otherDay));
+        assertEquals(expected, legacy.epochDay("2024-03-10", otherDay));
+    }
+
+    @Test
+    public void legacyDays_reusedAcrossRows() {
+        EpochDays.LegacyDays legacy = new EpochDays.LegacyDays();
+        for (int d = 1; d <= 31; d++) {
+            String s = String.format(Locale.US, "%02d/12/2024", d);
+            assertEquals(day(2024, 12, d), legacy.epochDay(s, 0L));
+        }
+        assertEquals(day(2025, 1, 1), legacy.epochDay("2025-01-01", 0L));
+    }
+
+    @Test
+    public void legacyDays_fallsBackToEpochMillis() {
+        EpochDays.LegacyDays legacy = new EpochDays.LegacyDays();
+        long millis = at(2024, 11, 3, 1, 30);
+        assertEquals(day(2024, 11, 3), legacy.epochDay(null, millis));
+        assertEquals(day(2024, 11, 3), legacy.epochDay("  ", millis));
+        assertEquals(day(2024, 11, 3), legacy.epochDay("yesterday", millis));
+    }
+
+    private static int day(int year, int month, int dayOfMonth) {
+        return (int) LocalDate.of(year, month, dayOfMonth).toEpochDay();
+    }
+
+    private static long at(int year, int month, int day, int hour, int minute) {
+        return ZonedDateTime.of(year, month, day, hour, minute, 0, 0, NEW_YORK).toInstant().toEpochMilli();
+    }
+}
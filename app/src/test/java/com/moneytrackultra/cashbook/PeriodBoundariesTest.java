@@ -0,0 +1,136 @@
+package com.moneytrackultra.cashbook;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+/**
+ * PeriodBoundaries windows at week / month / year edges, over DST switches and after a time
+ * zone reset. The default zone / locale are set per test and restored afterwards.
+ */
+public class PeriodBoundariesTest {
+
+    private static final ZoneId NEW_YORK = ZoneId.of("America/New_York");
+
+    private TimeZone savedZone;
+    private Locale savedLocale;
+
+    @Before
+    public void setUp() {
+        savedZone = TimeZone.getDefault();
+        savedLocale = Locale.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone(NEW_YORK));
+        Locale.setDefault(Locale.US);
+        PeriodBoundaries.get().reset();
+    }
+
+    @After
+    public void tearDown() {
+        TimeZone.setDefault(savedZone);
+        Locale.setDefault(savedLocale);
+        PeriodBoundaries.get().reset();
+    }
+
+    @Test
+    public void daily_springForwardDayIs23Hours() {
+        PeriodBoundaries.Window w = window(BuyingLimitFrequency.DAILY, at(2024, 3, 10, 12, 0));
+        assertEquals(at(2024, 3, 10, 0, 0), w.start);
+        assertEquals(at(2024, 3, 11, 0, 0), w.end);
+        assertEquals(23L * 3_600_000, w.end - w.start);
+    }
+
+    @Test
+    public void daily_fallBackDayIs25Hours() {
+        PeriodBoundaries.Window w = window(BuyingLimitFrequency.DAILY, at(2024, 11, 3, 1, 30));
+        assertEquals(25L * 3_600_000, w.end - w.start);
+    }
+
+    @Test
+    public void weekly_startsOnLocaleFirstDay() {
+        long wednesday = at(2024, 3, 13, 9, 0);
+        PeriodBoundaries.Window us = window(BuyingLimitFrequency.WEEKLY, wednesday);
+        assertEquals(at(2024, 3, 10, 0, 0), us.start); // Sunday, also the DST switch
+        assertEquals(at(2024, 3, 17, 0, 0), us.end);
+
+        Locale.setDefault(Locale.UK);
+        PeriodBoundaries.get().reset();
+        PeriodBoundaries.Window uk = window(BuyingLimitFrequency.WEEKLY, wednesday);
+        assertEquals(at(2024, 3, 11, 0, 0), uk.start); // Monday
+        assertEquals(at(2024, 3, 18, 0, 0), uk.end);
+    }
+
+    @Test
+    public void weekly_edgesBelongToTheRightWeek() {
+        long sundayMidnight = at(2024, 3, 17, 0, 0);
+        assertEquals(sundayMidnight, window(BuyingLimitFrequency.WEEKLY, sundayMidnight).start);
+        assertEquals(sundayMidnight, window(BuyingLimitFrequency.WEEKLY, sundayMidnight - 1).end);
+    }
+
+    @Test
+    public void monthly_edgesAndLeapFebruary() {
+        long lastMillisOfFeb = at(2024, 3, 1, 0, 0) - 1;
+        PeriodBoundaries.Window feb = window(BuyingLimitFrequency.MONTHLY, lastMillisOfFeb);
+        assertEquals(at(2024, 2, 1, 0, 0), feb.start);
+        assertEquals(at(2024, 3, 1, 0, 0), feb.end);
+        assertEquals(29L * 86_400_000, feb.end - feb.start);
+
+        PeriodBoundaries.Window march = window(BuyingLimitFrequency.MONTHLY, feb.end);
+        assertEquals(feb.end, march.start);
+        assertEquals(31L * 86_400_000 - 3_600_000, march.end - march.start); // loses the DST hour
+    }
+
+    @Test
+    public void monthlyAndYearly_acrossNewYear() {
+        long newYear = at(2025, 1, 1, 0, 0);
+        assertEquals(at(2024, 12, 1, 0, 0), window(BuyingLimitFrequency.MONTHLY, newYear - 1).start);
+        assertEquals(newYear, window(BuyingLimitFrequency.MONTHLY, newYear).start);
+        assertEquals(at(2024, 1, 1, 0, 0), window(BuyingLimitFrequency.YEARLY, newYear - 1).start);
+        assertEquals(newYear, window(BuyingLimitFrequency.YEARLY, newYear - 1).end);
+    }
+
+    @Test
+    public void isExpired_onceNowReachesTheNextWindow() {
+        long periodStart = at(2024, 2, 1, 0, 0);
+        assertFalse(PeriodBoundaries.get().isExpired(BuyingLimitFrequency.MONTHLY, periodStart,
+                at(2024, 3, 1, 0, 0) - 1));
+        assertTrue(PeriodBoundaries.get().isExpired(BuyingLimitFrequency.MONTHLY, periodStart,
+                at(2024, 3, 1, 0, 0)));
+    }
+
+    @Test
+    public void reset_picksUpNewZone() {
+        long millis = at(2024, 6, 30, 22, 0); // already July 1st in Tokyo
+        assertEquals(at(2024, 6, 1, 0, 0), PeriodBoundaries.get().current(BuyingLimitFrequency.MONTHLY, millis).start);
+
+        ZoneId tokyo = ZoneId.of("Asia/Tokyo");
+        TimeZone.setDefault(TimeZone.getTimeZone(tokyo));
+        PeriodBoundaries.get().reset();
+        PeriodBoundaries.Window w = PeriodBoundaries.get().current(BuyingLimitFrequency.MONTHLY, millis);
+        assertEquals(ZonedDateTime.of(2024, 7, 1, 0, 0, 0, 0, tokyo).toInstant().toEpochMilli(), w.start);
+    }
+
+    @Test
+    public void nullFrequency_isMonthly() {
+        long millis = at(2024, 5, 15, 8, 0);
+        PeriodBoundaries.Window w = window(null, millis);
+        assertEquals(at(2024, 5, 1, 0, 0), w.start);
+        assertEquals(at(2024, 6, 1, 0, 0), w.end);
+    }
+
+    private static PeriodBoundaries.Window window(BuyingLimitFrequency freq, long millis) {
+        PeriodBoundaries.Window w = PeriodBoundaries.get().containing(freq, millis);
+        assertTrue(w.contains(millis));
+        return w;
+    }
+
+    private static long at(int year, int month, int day, int hour, int minute) {
+        return ZonedDateTime.of(year, month, day, hour, minute, 0, 0, NEW_YORK).toInstant().toEpochMilli();
+    }
+}